@@ -0,0 +1,314 @@
+// -----AVLTree (ordered map) ADT-----
+// int size()
+// boolean isEmpty()
+// boolean containsKey(K key)
+// V get(K key)
+// V put(K key, V val)
+// V remove(K key)
+// K min()
+// K max()
+// K floor(K key)    // largest key <= key
+// K ceiling(K key)  // smallest key >= key
+// int rank(K key)   // # keys < key
+// K select(int k)   // key of rank k, 0-indexed
+// int size(K lo, K hi)
+// Iterable<K> keys(K lo, K hi)
+// height-balanced BST; every op is iterative, so no recursion depth
+// problem, and height stays <= 1.44 log(n); each node keeps its subtree
+// size for O(log n) rank/select
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+public class AVLTree<K extends Comparable<K>, V>{
+    // AVL height of 2^31 keys is < 46; path stack used by put/remove
+    private static final int MAX_HEIGHT = 64;
+    private static class TreeNode<K, V>{
+        private K key;
+        private V val;
+        private TreeNode<K, V> left, right;
+        private int height;
+        private int size;  // # nodes in the subtree rooted here
+        public TreeNode(K key, V val){
+            this.key = key;
+            this.val = val;
+            this.height = 1;
+            this.size = 1;
+        }
+    }
+
+    private TreeNode<K, V> root;
+    private final TreeNode<K, V>[] path = newPath();
+    public AVLTree(){
+        this.root = null;
+    }
+    public int size(){ return size(root); }
+    public boolean isEmpty(){ return this.root == null; }
+    public int height(){ return height(root); }
+    public boolean containsKey(K key){
+        return find(key) != null;
+    }
+    public V get(K key){
+        TreeNode<K, V> t = find(key);
+        return t == null ? null : t.val;
+    }
+    private TreeNode<K, V> find(K key){
+        TreeNode<K, V> t = root;
+        while(t != null){
+            int cmp = key.compareTo(t.key);
+            if(cmp == 0) return t;
+            t = cmp < 0 ? t.left : t.right;
+        }
+        return null;
+    }
+
+    public V put(K key, V val){
+        // walk down recording the path; replace val on a match;
+        // o.w. attach a leaf and fix size/height/balance bottom-up
+        if(root == null){
+            root = new TreeNode<K, V>(key, val);
+            return null;
+        }
+        int d = 0;
+        TreeNode<K, V> t = root;
+        while(true){
+            path[d++] = t;
+            int cmp = key.compareTo(t.key);
+            if(cmp == 0){
+                V old = t.val;
+                t.val = val;
+                clearPath(d);
+                return old;
+            }
+            TreeNode<K, V> next = cmp < 0 ? t.left : t.right;
+            if(next == null){
+                if(cmp < 0) t.left = new TreeNode<K, V>(key, val);
+                else t.right = new TreeNode<K, V>(key, val);
+                break;
+            }
+            t = next;
+        }
+        rebalancePath(d);
+        return null;
+    }
+    public V remove(K key){
+        // find the node; if it has two children, copy in its successor
+        // and unlink the successor instead, which has at most one child
+        int d = 0;
+        TreeNode<K, V> t = root;
+        while(t != null){
+            path[d++] = t;
+            int cmp = key.compareTo(t.key);
+            if(cmp == 0) break;
+            t = cmp < 0 ? t.left : t.right;
+        }
+        if(t == null){
+            clearPath(d);
+            return null;
+        }
+        V old = t.val;
+        if(t.left != null && t.right != null){
+            for(TreeNode<K, V> s = t.right; s != null; s = s.left) path[d++] = s;
+            TreeNode<K, V> succ = path[d - 1];
+            t.key = succ.key;
+            t.val = succ.val;
+        }
+        TreeNode<K, V> target = path[--d];
+        TreeNode<K, V> child = target.left != null ? target.left : target.right;
+        path[d] = null;
+        if(d == 0) root = child;
+        // BZ: compare by reference; after copying succ's key into t, keys tie
+        else if(path[d - 1].left == target) path[d - 1].left = child;
+        else path[d - 1].right = child;
+        rebalancePath(d);
+        return old;
+    }
+    private void rebalancePath(int d){
+        // BZ: must update every ancestor, sizes change all the way up
+        for(int i = d - 1; i >= 0; i--){
+            TreeNode<K, V> t = path[i];
+            TreeNode<K, V> b = balance(t);
+            if(b != t){
+                if(i == 0) root = b;
+                else if(path[i - 1].left == t) path[i - 1].left = b;
+                else path[i - 1].right = b;
+            }
+            path[i] = null;  // don't keep removed nodes reachable
+        }
+    }
+    private void clearPath(int d){
+        for(int i = 0; i < d; i++) path[i] = null;
+    }
+
+    public K min(){
+        if(this.isEmpty()) return null;
+        TreeNode<K, V> t = root;
+        while(t.left != null) t = t.left;
+        return t.key;
+    }
+    public K max(){
+        if(this.isEmpty()) return null;
+        TreeNode<K, V> t = root;
+        while(t.right != null) t = t.right;
+        return t.key;
+    }
+    public K floor(K key){
+        // remember the last node we turned right at
+        K best = null;
+        TreeNode<K, V> t = root;
+        while(t != null){
+            int cmp = key.compareTo(t.key);
+            if(cmp == 0) return t.key;
+            if(cmp < 0) t = t.left;
+            else{
+                best = t.key;
+                t = t.right;
+            }
+        }
+        return best;
+    }
+    public K ceiling(K key){
+        K best = null;
+        TreeNode<K, V> t = root;
+        while(t != null){
+            int cmp = key.compareTo(t.key);
+            if(cmp == 0) return t.key;
+            if(cmp > 0) t = t.right;
+            else{
+                best = t.key;
+                t = t.left;
+            }
+        }
+        return best;
+    }
+    public int rank(K key){
+        // count the left subtree + root every time we go right
+        int r = 0;
+        TreeNode<K, V> t = root;
+        while(t != null){
+            int cmp = key.compareTo(t.key);
+            if(cmp < 0) t = t.left;
+            else if(cmp > 0){
+                r += size(t.left) + 1;
+                t = t.right;
+            }
+            else return r + size(t.left);
+        }
+        return r;
+    }
+    public K select(int k){
+        if(k < 0 || k >= size()) throw new IndexOutOfBoundsException();
+        TreeNode<K, V> t = root;
+        while(true){
+            int ls = size(t.left);
+            if(k < ls) t = t.left;
+            else if(k > ls){
+                k -= ls + 1;
+                t = t.right;
+            }
+            else return t.key;
+        }
+    }
+    public int size(K lo, K hi){
+        // # keys in [lo, hi]
+        if(lo.compareTo(hi) > 0) return 0;
+        return rank(hi) - rank(lo) + (containsKey(hi) ? 1 : 0);
+    }
+    public Iterable<K> keys(K lo, K hi){
+        // lazy in-order walk of [lo, hi] w/ an explicit stack
+        return () -> new Iterator<K>(){
+            private final TreeNode<K, V>[] stack = newPath();
+            private int top = pushLeft(root, 0);
+            private int pushLeft(TreeNode<K, V> t, int top){
+                // push the path to the first key >= lo; skip subtrees < lo
+                while(t != null){
+                    if(lo.compareTo(t.key) > 0) t = t.right;
+                    else{
+                        stack[top++] = t;
+                        t = t.left;
+                    }
+                }
+                return top;
+            }
+            public boolean hasNext(){
+                return top > 0 && stack[top - 1].key.compareTo(hi) <= 0;
+            }
+            public K next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                TreeNode<K, V> t = stack[--top];
+                top = pushLeft(t.right, top);
+                return t.key;
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> TreeNode<K, V>[] newPath(){
+        return new TreeNode[MAX_HEIGHT];
+    }
+    private static <K, V> int height(TreeNode<K, V> t){ return t == null ? 0 : t.height; }
+    private static <K, V> int size(TreeNode<K, V> t){ return t == null ? 0 : t.size; }
+    private static <K, V> void update(TreeNode<K, V> t){
+        t.height = 1 + Math.max(height(t.left), height(t.right));
+        t.size = 1 + size(t.left) + size(t.right);
+    }
+    private static <K, V> TreeNode<K, V> balance(TreeNode<K, V> t){
+        // rotate when the two subtree heights differ by more than 1
+        update(t);
+        int diff = height(t.left) - height(t.right);
+        if(diff > 1){
+            // BZ: left-right case needs a double rotation
+            if(height(t.left.left) < height(t.left.right)) t.left = rotateLeft(t.left);
+            return rotateRight(t);
+        }
+        if(diff < -1){
+            if(height(t.right.right) < height(t.right.left)) t.right = rotateRight(t.right);
+            return rotateLeft(t);
+        }
+        return t;
+    }
+    private static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> t){
+        TreeNode<K, V> l = t.left;
+        t.left = l.right;
+        l.right = t;
+        update(t);
+        update(l);
+        return l;
+    }
+    private static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> t){
+        TreeNode<K, V> r = t.right;
+        t.right = r.left;
+        r.left = t;
+        update(t);
+        update(r);
+        return r;
+    }
+
+    public static void main( String [] args ){
+        AVLTree<Integer, Integer> t = new AVLTree<>( );
+        final int NUMS = 1000000;  // sorted input; unbalanced BST would overflow the stack
+        System.out.println( "Checking... (no more output means success)" );
+        for( int i = 0; i < NUMS; i++ ) t.put( i, -i );
+        if( t.height( ) > 1.44 * Math.log( NUMS + 2 ) / Math.log( 2 ) )
+            System.out.println( "Height error! " + t.height( ) );
+        for( int i = 1; i < NUMS; i+= 2 )
+            if( t.remove( i ) != -i ) System.out.println( "Remove error! " + i );
+        if( t.size( ) != NUMS / 2 ) System.out.println( "Size error! " + t.size( ) );
+        if( t.min( ) != 0 || t.max( ) != NUMS - 2 )
+            System.out.println( "FindMin or FindMax error!" );
+        for( int i = 0; i < NUMS; i++ ){
+            if( t.containsKey( i ) != ( i % 2 == 0 ) ) System.out.println( "Find error! " + i );
+            if( t.rank( i ) != ( i + 1 ) / 2 ) System.out.println( "Rank error! " + i );
+            if( t.floor( i ) != i - i % 2 ) System.out.println( "Floor error! " + i );
+            if( i < NUMS - 1 && t.ceiling( i ) != i + i % 2 ) System.out.println( "Ceiling error! " + i );
+        }
+        for( int k = 0; k < NUMS / 2; k++ )
+            if( t.select( k ) != 2 * k ) System.out.println( "Select error! " + k );
+        int expect = 100;
+        for( int key : t.keys( 99, 201 ) ){
+            if( key != expect ) System.out.println( "Range error! " + key );
+            expect += 2;
+        }
+        if( expect != 202 || t.size( 99, 201 ) != 51 ) System.out.println( "Range size error!" );
+        for( int i = 0; i < NUMS; i+= 2 ) t.remove( i );
+        if( !t.isEmpty( ) ) System.out.println( "Remove all error!" );
+    }
+}
@@ -0,0 +1,82 @@
+// -----Ordered map benchmark-----
+// LongBPlusTree vs java.util.TreeMap vs AVLTree vs BST on random long keys:
+// build by random inserts, N random lookups, and one full in-order scan;
+// the binary trees chase one pointer per level, the B+-tree one per node
+// (coursera binary_search_trees.BinarySearchTree has the same node layout
+// as BST, so BST stands in for both unbalanced pointer trees)
+// usage: java -Xms8g -Xmx8g BPlusTreeBenchmark [N ...]   (default 100000 1000000)
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+public class BPlusTreeBenchmark{
+    private static final Object VAL = new Object();
+    private static long sink;  // BZ: consume results so the JIT keeps the loops
+    private static boolean report;  // off during warmup
+
+    private static void bench(String name, int n, Runnable build, Runnable lookup, Runnable scan){
+        long t0 = System.nanoTime();
+        build.run();
+        long t1 = System.nanoTime();
+        lookup.run();
+        long t2 = System.nanoTime();
+        scan.run();
+        long t3 = System.nanoTime();
+        if(report) System.out.printf("%-14s %11d %10.1f %10.1f %10.1f%n", name, n,
+                          (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6);
+    }
+    private static void run(long[] keys, long[] probes){
+        final int n = keys.length;
+        // BZ: box once up front; boxing is not what we measure
+        final Long[] boxed = new Long[n], boxedProbes = new Long[n];
+        for(int i = 0; i < n; i++){
+            boxed[i] = keys[i];
+            boxedProbes[i] = probes[i];
+        }
+
+        final LongBPlusTree<Object> bpt = new LongBPlusTree<>();
+        bench("LongBPlusTree", n,
+              () -> { for(long k : keys) bpt.put(k, VAL); },
+              () -> { for(long k : probes) if(bpt.get(k) != null) sink++; },
+              () -> sink += bpt.rangeScan(Long.MIN_VALUE, Long.MAX_VALUE, (k, v) -> sink += k));
+
+        final TreeMap<Long, Object> tm = new TreeMap<>();
+        bench("TreeMap", n,
+              () -> { for(Long k : boxed) tm.put(k, VAL); },
+              () -> { for(Long k : boxedProbes) if(tm.get(k) != null) sink++; },
+              () -> { for(Map.Entry<Long, Object> e : tm.entrySet()) sink += e.getKey(); });
+
+        final AVLTree<Long, Object> avl = new AVLTree<>();
+        bench("AVLTree", n,
+              () -> { for(Long k : boxed) avl.put(k, VAL); },
+              () -> { for(Long k : boxedProbes) if(avl.get(k) != null) sink++; },
+              () -> { for(Long k : avl.keys(Long.MIN_VALUE, Long.MAX_VALUE)) sink += k; });
+
+        final BST<Long> bst = new BST<>();
+        bench("BST", n,
+              () -> { for(Long k : boxed) bst.insert(k); },
+              () -> { for(Long k : boxedProbes) if(bst.contains(k)) sink++; },
+              () -> { for(Iterator<Long> it = bst.iterator(); it.hasNext(); ) sink += it.next(); });
+    }
+    public static void main( String [ ] args ){
+        int[ ] sizes = { 100000, 1000000 };
+        if( args.length > 0 ){
+            sizes = new int[ args.length ];
+            for( int i = 0; i < args.length; i++ ) sizes[ i ] = Integer.parseInt( args[ i ] );
+        }
+        java.util.Random rand = new java.util.Random( 550 );
+        // warm up the JIT on a small instance first
+        long[ ] warm = rand.longs( 100000 ).toArray( );
+        for( int r = 0; r < 3; r++ ) run( warm, warm );
+        report = true;
+
+        System.out.printf( "%-14s %11s %10s %10s %10s%n", "structure", "N", "build(ms)", "get(ms)", "scan(ms)" );
+        for( int n : sizes ){
+            long[ ] keys = rand.longs( n ).toArray( );
+            // half hits, half (almost surely) misses
+            long[ ] probes = new long[ n ];
+            for( int i = 0; i < n; i++ ) probes[ i ] = i % 2 == 0 ? keys[ rand.nextInt( n ) ] : rand.nextLong( );
+            run( keys, probes );
+        }
+        if( sink == 42 ) System.out.println( );
+    }
+}
@@ -6,7 +6,14 @@
 // void insert(T x)
 // void remove(T x)  // no duplicate
 // void printTree()
-public class BST<T extends Comparable<T>>{  // BZ: T implements Comparable?
+// Iterator<T> iterator()  // in-order, iterative
+// static BST<T> fromSorted(T[] sorted)
+// static BST<T> fromSorted(Iterator<T> sorted, int n)
+// static BST<T> union(BST<T> a, BST<T> b)
+// static BST<T> intersection(BST<T> a, BST<T> b)
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+public class BST<T extends Comparable<T>> implements Iterable<T>{  // BZ: T implements Comparable?
     private static class TreeNode<T>{
         private T val;
         private TreeNode<T> left, right;
@@ -93,6 +100,108 @@ public class BST<T extends Comparable<T>>{  // BZ: T implements Comparable?
         return root;
     }
     
+    public Iterator<T> iterator(){
+        // in-order w/ an explicit stack; a skewed tree is too deep to recurse
+        return new Iterator<T>(){
+            private final java.util.ArrayDeque<TreeNode<T>> stack = new java.util.ArrayDeque<>();
+            { pushLeft(root); }
+            private void pushLeft(TreeNode<T> t){
+                for(; t != null; t = t.left) stack.push(t);
+            }
+            public boolean hasNext(){ return !stack.isEmpty(); }
+            public T next(){
+                if(stack.isEmpty()) throw new NoSuchElementException();
+                TreeNode<T> t = stack.pop();
+                pushLeft(t.right);
+                return t.val;
+            }
+        };
+    }
+
+    // -----bulk operations-----
+    public static <T extends Comparable<T>> BST<T> fromSorted(T[] sorted){
+        return fromSorted(java.util.Arrays.asList(sorted).iterator(), sorted.length);
+    }
+    public static <T extends Comparable<T>> BST<T> fromSorted(Iterator<T> sorted, int n){
+        // O(n) and perfectly balanced: build the left half, take the next
+        // key as root, build the right half; keys are consumed in order,
+        // so a stream works as well as an array and nothing is compared
+        // beyond the sortedness check
+        BST<T> t = new BST<>();
+        t.root = new Builder<T>(sorted).build(n);
+        return t;
+    }
+    private static class Builder<T extends Comparable<T>>{
+        private final Iterator<T> it;
+        private T last;
+        public Builder(Iterator<T> it){ this.it = it; }
+        private TreeNode<T> build(int n){
+            if(n == 0) return null;
+            // BZ: left gets floor((n-1)/2), right the rest; recursion depth log(n)
+            int leftSize = (n - 1) / 2;
+            TreeNode<T> left = build(leftSize);
+            if(!it.hasNext()) throw new IllegalArgumentException("fewer than n keys");
+            T x = it.next();
+            if(last != null && last.compareTo(x) >= 0)
+                throw new IllegalArgumentException("keys not strictly increasing: " + x);
+            last = x;
+            return new TreeNode<T>(x, left, build(n - 1 - leftSize));
+        }
+    }
+    public static <T extends Comparable<T>> BST<T> union(BST<T> a, BST<T> b){
+        return merge(a, b, true);
+    }
+    public static <T extends Comparable<T>> BST<T> intersection(BST<T> a, BST<T> b){
+        return merge(a, b, false);
+    }
+    private static <T extends Comparable<T>> BST<T> merge(BST<T> a, BST<T> b, boolean union){
+        // O(m+n): one in-order merge walk to count the result,
+        // a second one streamed straight into fromSorted
+        int n = 0;
+        for(Iterator<T> it = new MergeIterator<T>(a.iterator(), b.iterator(), union); it.hasNext(); it.next()) n++;
+        return fromSorted(new MergeIterator<T>(a.iterator(), b.iterator(), union), n);
+    }
+    private static class MergeIterator<T extends Comparable<T>> implements Iterator<T>{
+        // merge step of mergesort over two sorted iterators;
+        // union emits every key once, intersection only keys in both
+        private final Iterator<T> a, b;
+        private final boolean union;
+        private T x, y, next;
+        public MergeIterator(Iterator<T> a, Iterator<T> b, boolean union){
+            this.a = a;
+            this.b = b;
+            this.union = union;
+            this.x = a.hasNext() ? a.next() : null;
+            this.y = b.hasNext() ? b.next() : null;
+            advance();
+        }
+        private void advance(){
+            next = null;
+            while(x != null || y != null){
+                int cmp = x == null ? 1 : y == null ? -1 : x.compareTo(y);
+                T min = cmp <= 0 ? x : y;
+                if(cmp <= 0) x = a.hasNext() ? a.next() : null;
+                if(cmp >= 0) y = b.hasNext() ? b.next() : null;
+                if(union || cmp == 0){
+                    next = min;
+                    return;
+                }
+                // BZ: intersection is done once either side runs out
+                if(x == null || y == null){
+                    x = y = null;
+                    return;
+                }
+            }
+        }
+        public boolean hasNext(){ return next != null; }
+        public T next(){
+            if(next == null) throw new NoSuchElementException();
+            T result = next;
+            advance();
+            return result;
+        }
+    }
+
     public static void main( String [] args ){
         BST<Integer> t = new BST<>( );
         final int NUMS = 4000;
@@ -112,6 +221,40 @@ public class BST<T extends Comparable<T>>{  // BZ: T implements Comparable?
             if( t.contains( i ) )
                 System.out.println( "Find error2!" );
         }
+
+        // bulk build: evens and multiples of 3, merged in order
+        Integer[ ] evens = new Integer[ NUMS / 2 ], threes = new Integer[ NUMS / 3 ];
+        for( int i = 0; i < evens.length; i++ ) evens[ i ] = 2 * i;
+        for( int i = 0; i < threes.length; i++ ) threes[ i ] = 3 * i;
+        BST<Integer> a = fromSorted( evens ), b = fromSorted( threes );
+        int expect = 0;
+        for( int x : union( a, b ) ){
+            while( expect % 2 != 0 && expect % 3 != 0 ) expect++;
+            if( x != expect++ ) System.out.println( "Union error! " + x );
+        }
+        expect = 0;
+        for( int x : intersection( a, b ) ){
+            if( x != expect ) System.out.println( "Intersection error! " + x );
+            expect += 6;
+        }
+        if( expect != 6 * ( ( 2 * evens.length - 2 ) / 6 + 1 ) )
+            System.out.println( "Intersection size error!" );
+
+        // timing: repeated insert of shuffled keys vs fromSorted
+        final int BULK = 2000000;
+        Integer[ ] keys = new Integer[ BULK ];
+        for( int i = 0; i < BULK; i++ ) keys[ i ] = i;
+        java.util.List<Integer> shuffled = new java.util.ArrayList<>( java.util.Arrays.asList( keys ) );
+        java.util.Collections.shuffle( shuffled, new java.util.Random( 550 ) );
+        long startTime = System.currentTimeMillis( );
+        BST<Integer> slow = new BST<>( );
+        for( int x : shuffled ) slow.insert( x );
+        long midTime = System.currentTimeMillis( );
+        BST<Integer> fast = fromSorted( keys );
+        long endTime = System.currentTimeMillis( );
+        if( fast.findMin( ) != 0 || fast.findMax( ) != BULK - 1 ) System.out.println( "Bulk error!" );
+        System.out.println( "insert x" + BULK + ": " + (midTime - startTime)
+                            + " ms, fromSorted: " + (endTime - midTime) + " ms" );
     }
     /**
      * Internal method to print a subtree in sorted order.
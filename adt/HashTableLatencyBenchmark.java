@@ -0,0 +1,63 @@
+// -----HashTable latency benchmark-----
+// times every single insert w/ System.nanoTime() while the table grows
+// from empty to N keys, and prints latency percentiles per table/mode;
+// stop-the-world rehash shows up in the tail (p99.9/max), incremental
+// rehash should keep it flat
+// usage: java -Xms4g -Xmx4g HashTableLatencyBenchmark [N]   (default 2000000)
+// BZ: fix the heap size, o.w. heap resizing/GC pauses dominate the max column
+public class HashTableLatencyBenchmark{
+    private interface Inserter{
+        void insert(Integer x);
+    }
+    private static Inserter table(String name){
+        switch(name){
+            case "QuadraticProbing":
+                return new HashTable_QuadraticProbing<Integer>(false)::insert;
+            case "QuadraticProbing/incremental":
+                return new HashTable_QuadraticProbing<Integer>(true)::insert;
+            case "SeparateChaining":
+                return new HashTable_SeparateChaining<Integer>(false)::insert;
+            default:
+                return new HashTable_SeparateChaining<Integer>(true)::insert;
+        }
+    }
+    private static long[] run(Inserter table, Integer[] keys){
+        long[] latency = new long[keys.length];
+        for(int i = 0; i < keys.length; i++){
+            long start = System.nanoTime();
+            table.insert(keys[i]);
+            latency[i] = System.nanoTime() - start;
+        }
+        return latency;
+    }
+    private static long percentile(long[] sorted, double p){
+        int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+    public static void main( String [ ] args ){
+        final int N = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 2000000;
+        final String[ ] names = { "QuadraticProbing", "QuadraticProbing/incremental",
+                                  "SeparateChaining", "SeparateChaining/incremental" };
+        // BZ: box the keys up front so Integer allocation is not timed
+        Integer[ ] keys = new Integer[ N ];
+        java.util.Random rand = new java.util.Random( 550 );
+        for( int i = 0; i < N; i++ ) keys[ i ] = rand.nextInt( );
+        // warm up the JIT on a smaller table before measuring
+        Integer[ ] warm = java.util.Arrays.copyOf( keys, Math.min( N, 200000 ) );
+        for( String name : names )
+            for( int r = 0; r < 3; r++ ) run( table( name ), warm );
+
+        System.out.printf( "%-30s %8s %8s %8s %10s %10s %10s%n", "table (N=" + N + ")",
+                           "p50(us)", "p99(us)", "p99.9", "p99.99", "max(us)", "total(ms)" );
+        for( String name : names ){
+            long[ ] latency = run( table( name ), keys );
+            long total = 0;
+            for( long t : latency ) total += t;
+            java.util.Arrays.sort( latency );
+            System.out.printf( "%-30s %8.2f %8.2f %8.2f %10.2f %10.2f %10d%n", name,
+                               percentile( latency, 50 ) / 1e3, percentile( latency, 99 ) / 1e3,
+                               percentile( latency, 99.9 ) / 1e3, percentile( latency, 99.99 ) / 1e3,
+                               latency[ N - 1 ] / 1e3, total / 1000000 );
+        }
+    }
+}
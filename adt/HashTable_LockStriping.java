@@ -0,0 +1,259 @@
+// -----HashTable_LockStriping ADT-----
+// int size()
+// boolean containsKey(K key)
+// V get(K key)  // lock-free
+// V put(K key, V value)
+// V putIfAbsent(K key, V value)
+// V remove(K key)
+// V computeIfAbsent(K key, Function f)
+// concurrent hash map split into segments, each w/ its own lock and its own
+// separate chaining table; writers lock one segment, readers never lock;
+// each segment rehashes on its own, so a resize stalls 1/SEGMENTS of the keys
+// no null keys or values (null means "absent" on the lock-free read path)
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+public class HashTable_LockStriping<K, V>{
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    // BZ: key/hash final and value/next volatile, so a reader that finds a
+    // node through a volatile read always sees it fully built
+    private static class Node<K, V>{
+        private final int hash;
+        private final K key;
+        private volatile V value;
+        private volatile Node<K, V> next;
+        public Node(int hash, K key, V value, Node<K, V> next){
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+    private static final class Segment<K, V> extends ReentrantLock{
+        private static final long serialVersionUID = 1L;
+        // AtomicReferenceArray gives volatile reads/writes of single bins;
+        // the table reference itself is volatile so a resize publishes at once
+        private volatile AtomicReferenceArray<Node<K, V>> table;
+        private volatile int count;
+        private int threshold;
+        public Segment(int capacity){
+            setTable(new AtomicReferenceArray<Node<K, V>>(capacity));
+        }
+        private void setTable(AtomicReferenceArray<Node<K, V>> tab){
+            this.threshold = (int) (tab.length() * LOAD_FACTOR);
+            this.table = tab;
+        }
+        private Node<K, V> find(int h, Object key){
+            // lock-free: one volatile read of the table, then of the bin
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for(Node<K, V> e = tab.get(h & (tab.length() - 1)); e != null; e = e.next)
+                if(e.hash == h && key.equals(e.key)) return e;
+            return null;
+        }
+        private V put(int h, K key, V value, boolean onlyIfAbsent){
+            // caller holds the lock
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int i = h & (tab.length() - 1);
+            Node<K, V> head = tab.get(i);
+            for(Node<K, V> e = head; e != null; e = e.next){
+                if(e.hash == h && key.equals(e.key)){
+                    V prev = e.value;
+                    if(!onlyIfAbsent) e.value = value;
+                    return prev;
+                }
+            }
+            // prepend, so readers walking the old chain are never disturbed
+            tab.set(i, new Node<K, V>(h, key, value, head));
+            if(++count > threshold) rehash();
+            return null;
+        }
+        private V remove(int h, Object key){
+            // caller holds the lock; unlinking w/ a volatile write is safe
+            // for readers: they either see the node or skip it
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int i = h & (tab.length() - 1);
+            Node<K, V> prev = null;
+            for(Node<K, V> e = tab.get(i); e != null; prev = e, e = e.next){
+                if(e.hash == h && key.equals(e.key)){
+                    if(prev == null) tab.set(i, e.next);
+                    else prev.next = e.next;
+                    count--;
+                    return e.value;
+                }
+            }
+            return null;
+        }
+        private void rehash(){
+            // caller holds the lock; build a doubled table aside and publish it;
+            // BZ: copy nodes instead of relinking them, o.w. a concurrent reader
+            // on the old table could be sent into the wrong chain
+            AtomicReferenceArray<Node<K, V>> old = table;
+            int n = old.length() * 2;
+            if(n > (1 << 30)) return;
+            AtomicReferenceArray<Node<K, V>> tab = new AtomicReferenceArray<Node<K, V>>(n);
+            for(int i = 0; i < old.length(); i++){
+                for(Node<K, V> e = old.get(i); e != null; e = e.next){
+                    int j = e.hash & (n - 1);
+                    tab.set(j, new Node<K, V>(e.hash, e.key, e.value, tab.get(j)));
+                }
+            }
+            setTable(tab);
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    public HashTable_LockStriping(){
+        this(DEFAULT_SEGMENTS, 16);
+    }
+    public HashTable_LockStriping(int concurrency, int capacityPerSegment){
+        // round both up to powers of two; segment picked by the high hash bits,
+        // bin by the low bits, so the two choices are independent
+        int s = 1, shift = 32;
+        while(s < concurrency){ s <<= 1; shift--; }
+        int cap = 2;
+        while(cap < capacityPerSegment) cap <<= 1;
+        this.segmentShift = shift;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Segment<K, V>[] segs = new Segment[s];
+        this.segments = segs;
+        for(int i = 0; i < s; i++) segments[i] = new Segment<K, V>(cap);
+    }
+    public int size(){
+        // sum of volatile counts; only a snapshot under concurrent updates
+        long sum = 0;
+        for(Segment<K, V> seg : segments) sum += seg.count;
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+    public boolean isEmpty(){ return this.size() == 0; }
+    public boolean containsKey(K key){
+        return get(key) != null;
+    }
+    public V get(K key){
+        int h = hash(key);
+        Node<K, V> e = segmentFor(h).find(h, key);
+        return e == null ? null : e.value;
+    }
+    public V put(K key, V value){
+        if(value == null) throw new NullPointerException();
+        int h = hash(key);
+        Segment<K, V> seg = segmentFor(h);
+        seg.lock();
+        try{
+            return seg.put(h, key, value, false);
+        }finally{
+            seg.unlock();
+        }
+    }
+    public V putIfAbsent(K key, V value){
+        if(value == null) throw new NullPointerException();
+        int h = hash(key);
+        Segment<K, V> seg = segmentFor(h);
+        seg.lock();
+        try{
+            return seg.put(h, key, value, true);
+        }finally{
+            seg.unlock();
+        }
+    }
+    public V remove(K key){
+        int h = hash(key);
+        Segment<K, V> seg = segmentFor(h);
+        seg.lock();
+        try{
+            return seg.remove(h, key);
+        }finally{
+            seg.unlock();
+        }
+    }
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> f){
+        // fast path w/o lock; on a miss lock, check again and compute once;
+        // f runs under the segment lock and must not touch this map
+        int h = hash(key);
+        Segment<K, V> seg = segmentFor(h);
+        Node<K, V> e = seg.find(h, key);
+        if(e != null) return e.value;
+        seg.lock();
+        try{
+            e = seg.find(h, key);
+            if(e != null) return e.value;
+            V value = f.apply(key);
+            if(value != null) seg.put(h, key, value, false);
+            return value;
+        }finally{
+            seg.unlock();
+        }
+    }
+    private Segment<K, V> segmentFor(int h){
+        // BZ: shift of 32 is a no-op in Java; single segment needs index 0
+        return segments.length == 1 ? segments[0] : segments[h >>> segmentShift];
+    }
+    private static int hash(Object key){
+        // spread the bits: both the high (segment) and low (bin) bits must vary
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    public static void main( String [ ] args ) throws InterruptedException{
+        final int THREADS = Runtime.getRuntime( ).availableProcessors( );
+        final int NUMS = 1000000;
+        System.out.println( "Checking... (no more output means success)" );
+
+        // each thread owns the keys i where i % THREADS == id
+        HashTable_LockStriping<Integer, Integer> H = new HashTable_LockStriping<>( );
+        Thread[ ] workers = new Thread[ THREADS ];
+        for( int t = 0; t < THREADS; t++ ){
+            final int id = t;
+            workers[ t ] = new Thread( ( ) -> {
+                for( int i = id; i < NUMS; i += THREADS ) H.put( i, -i );
+                for( int i = id; i < NUMS; i += THREADS * 2 ) H.remove( i );
+                for( int i = id; i < NUMS; i += THREADS )
+                    if( H.computeIfAbsent( i, k -> -k ) != -i ) System.out.println( "Compute fails " + i );
+            } );
+            workers[ t ].start( );
+        }
+        for( Thread w : workers ) w.join( );
+        for( int i = 0; i < NUMS; i++ )
+            if( H.get( i ) == null || H.get( i ) != -i ) System.out.println( "Find fails " + i );
+        if( H.size( ) != NUMS ) System.out.println( "Size fails " + H.size( ) );
+
+        // throughput: 90% reads / 10% writes, vs one global lock around chaining
+        final HashTable_SeparateChaining<Integer> S = new HashTable_SeparateChaining<>( );
+        final HashTable_LockStriping<Integer, Integer> M = new HashTable_LockStriping<>( );
+        final int OPS = 2000000;
+        for( int threads = 1; threads <= THREADS; threads *= 2 ){
+            long global = timeThreads( threads, OPS, ( k, write ) -> {
+                synchronized( S ){
+                    if( write ) S.insert( k ); else S.contains( k );
+                }
+            } );
+            long striped = timeThreads( threads, OPS, ( k, write ) -> {
+                if( write ) M.put( k, k ); else M.get( k );
+            } );
+            System.out.printf( "threads=%2d global lock: %6d ms   striped: %6d ms%n",
+                               threads, global, striped );
+        }
+    }
+    private interface Op{
+        void apply(int key, boolean write);
+    }
+    private static long timeThreads( int threads, int opsPerThread, Op op ) throws InterruptedException{
+        Thread[ ] workers = new Thread[ threads ];
+        for( int t = 0; t < threads; t++ ){
+            final long seed = t;
+            workers[ t ] = new Thread( ( ) -> {
+                java.util.Random rand = new java.util.Random( seed );
+                for( int i = 0; i < opsPerThread; i++ )
+                    op.apply( rand.nextInt( 1 << 20 ), rand.nextInt( 10 ) == 0 );
+            } );
+        }
+        long startTime = System.currentTimeMillis( );
+        for( Thread w : workers ) w.start( );
+        for( Thread w : workers ) w.join( );
+        return System.currentTimeMillis( ) - startTime;
+    }
+}
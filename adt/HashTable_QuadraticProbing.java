@@ -1,10 +1,15 @@
 // -----HashTable_QuadraticProbing ADT-----
 // boolean contains(T x)
-// void insert(T x)
-// void remove(T x)
+// boolean insert(T x)  // insert if absent
+// boolean remove(T x)
 // int hash(T x)
 // void rehash()
+// incremental mode: rehash keeps the old table and migrates a few slots
+// per insert/remove instead of re-inserting everything in one call
 public class HashTable_QuadraticProbing<T>{
+    // old slots visited per operation while migrating; the old table has
+    // L slots and the new one fills up again after L/2 inserts, so >= 2
+    private static final int MIGRATE_STEP = 8;
     private static class HashEntry<T>{
         private T key;
         // BZ: extra flag to denote if cur cell is deleted;
@@ -16,44 +21,78 @@ public class HashTable_QuadraticProbing<T>{
         }
     }
     private HashEntry<T>[] table;
+    // incremental mode only: table being drained; slots below migrateIndex are moved
+    private HashEntry<T>[] oldTable;
+    private int migrateIndex;
+    private final boolean incremental;
     private int size;
     public HashTable_QuadraticProbing(){
+        this(false);
+    }
+    public HashTable_QuadraticProbing(boolean incremental){
         this.size = 0;
-        this.table = new HashEntry[101];
+        this.incremental = incremental;
+        this.table = newTable(101);
     }
     public boolean contains(T x){
         // compute index i of first slot x;
         // forward i till the first match or null/deleted;
         // return if it stops at non-null and active
         int i = hash(x);
-        i = findSlot(i, x);
-        return table[i] != null && table[i].active;
+        i = findSlot(table, i, x);
+        if(table[i] != null && table[i].active) return true;
+        return oldTable != null && isActiveIn(oldTable, x);
     }
     public boolean insert(T x){
         // compute index i of first slot x;
         // forward i till the first null/deleted;
         // fill in x if stops at null or deleted;
         // if duplicate, return;
+        if(oldTable != null){
+            migrateStep();
+            // BZ: a not yet migrated duplicate is still a duplicate
+            if(oldTable != null && isActiveIn(oldTable, x)) return false;
+        }
         int i = hash(x);
-        i = findSlot(i, x);
+        i = findSlot(table, i, x);
         if(table[i] != null && table[i].active) return false;
         table[i] = new HashEntry<T>(x, true);
         // BZ: rehash as soon as table is half full for quadratic probing
         if(++size == table.length / 2) rehash();
         return true;
     }
-    public void remove(T x){
+    public boolean remove(T x){
         // compute index i of first slot x;
         // forward i till the first match or null/deleted;
         // if stop at null or already deleted, return;
         // mark cell deleted to bridge further probes
+        if(oldTable != null){
+            migrateStep();
+            if(oldTable != null){
+                int j = findSlot(oldTable, hash(x, oldTable.length), x);
+                if(oldTable[j] != null && oldTable[j].active){
+                    oldTable[j].active = false;
+                    this.size--;
+                    return true;
+                }
+            }
+        }
         int i = hash(x);
-        i = findSlot(i, x);
-        if(table[i] == null || ! table[i].active) return;
+        i = findSlot(table, i, x);
+        if(table[i] == null || ! table[i].active) return false;
         table[i].active = false;
         this.size--; // BZ: decrease size
+        return true;
+    }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> HashEntry<T>[] newTable(int length){
+        return new HashEntry[length];
+    }
+    private boolean isActiveIn(HashEntry<T>[] tab, T x){
+        int i = findSlot(tab, hash(x, tab.length), x);
+        return tab[i] != null && tab[i].active;
     }
-    private int findSlot(int i, T x){
+    private int findSlot(HashEntry<T>[] table, int i, T x){
         // try each cell i^2 (0,1,4,9) away from start;
         // while next trial not null and unmatch, forward i;
         int offset = 1;
@@ -65,16 +104,29 @@ public class HashTable_QuadraticProbing<T>{
         return i;
     }
     private int hash(T x){
+        return hash(x, table.length);
+    }
+    private static <T> int hash(T x, int length){
         int hashval = x.hashCode();
-        hashval %= table.length;
-        if(hashval < 0) hashval += table.length;
+        hashval %= length;
+        if(hashval < 0) hashval += length;
         return hashval;
     }
     private void rehash(){
         // create a double-sized array;
         // insert each non-null entry again to the new size array;
+        if(incremental){
+            // BZ: finish the previous migration before starting another one
+            while(oldTable != null) migrateStep();
+            oldTable = table;
+            migrateIndex = 0;
+            table = newTable(nextPrime(2 * table.length + 1));
+            return;
+        }
         HashEntry<T>[] tmp = table; // entries are HashEntry<T> type;
-        table = new HashEntry[nextPrime(2 * table.length + 1)];
+        table = newTable(nextPrime(2 * table.length + 1));
+        // BZ: insert() counts again; reset size before re-inserting
+        size = 0;
         for(HashEntry<T> entry : tmp){
             // BZ: don't copy deleted; since re-insert each entry,
             // no need to keep deleted cells for further probes
@@ -82,6 +134,20 @@ public class HashTable_QuadraticProbing<T>{
             insert(entry.key);  // BZ: insert(entry)?
         }
     }
+    private void migrateStep(){
+        // move the active entries of the next MIGRATE_STEP old slots;
+        // BZ: cannot null out old slots, they still bridge probes of
+        // keys not migrated yet; mark them deleted instead
+        int end = Math.min(migrateIndex + MIGRATE_STEP, oldTable.length);
+        for(; migrateIndex < end; migrateIndex++){
+            HashEntry<T> entry = oldTable[migrateIndex];
+            if(entry == null || ! entry.active) continue;
+            int i = findSlot(table, hash(entry.key), entry.key);
+            table[i] = new HashEntry<T>(entry.key, true);
+            entry.active = false;
+        }
+        if(migrateIndex == oldTable.length) oldTable = null;
+    }
 
     /**
      * Internal method to find a prime number at least as large as n.
@@ -110,22 +176,27 @@ public class HashTable_QuadraticProbing<T>{
 
     // Simple main
     public static void main( String [ ] args ){
-        HashTable_QuadraticProbing<String> H = new HashTable_QuadraticProbing<>( );    
-        long startTime = System.currentTimeMillis( );        
         final int NUMS = 2000000;
         final int GAP  =   37;
         System.out.println( "Checking... (no more output means success)" );
+        for( boolean incremental : new boolean[ ]{ false, true } ){
+            HashTable_QuadraticProbing<String> H = new HashTable_QuadraticProbing<>( incremental );
+            long startTime = System.currentTimeMillis( );
 
-        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.insert( ""+i );
-        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
-            if( H.insert( ""+i ) ) System.out.println( "OOPS!!! " + i );
-        for( int i = 1; i < NUMS; i+= 2 ) H.remove( ""+i );
-        for( int i = 2; i < NUMS; i+=2 )
-            if( !H.contains( ""+i ) ) System.out.println( "Find fails " + i );
-        for( int i = 1; i < NUMS; i+=2 )
-            if( H.contains( ""+i ) ) System.out.println( "OOPS!!! " +  i  );
+            for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.insert( ""+i );
+            for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+                if( H.insert( ""+i ) ) System.out.println( "OOPS!!! " + i );
+            for( int i = 1; i < NUMS; i+= 2 )
+                if( !H.remove( ""+i ) ) System.out.println( "Remove fails " + i );
+            if( H.remove( "1" ) ) System.out.println( "OOPS!!! removed twice" );
+            for( int i = 2; i < NUMS; i+=2 )
+                if( !H.contains( ""+i ) ) System.out.println( "Find fails " + i );
+            for( int i = 1; i < NUMS; i+=2 )
+                if( H.contains( ""+i ) ) System.out.println( "OOPS!!! " +  i  );
 
-        long endTime = System.currentTimeMillis( );
-        System.out.println( "Elapsed time: " + (endTime - startTime) );
+            long endTime = System.currentTimeMillis( );
+            System.out.println( ( incremental ? "Incremental" : "Stop-the-world" )
+                                + " elapsed time: " + (endTime - startTime) );
+        }
     }
 }
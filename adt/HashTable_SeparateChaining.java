@@ -1,64 +1,347 @@
 // -----HashTable_SeparateChaining ADT-----
+// int size()
 // boolean contains(T x)
-// void insert(T x)
-// void remove(T x)
+// boolean insert(T x)  // insert if absent
+// boolean remove(T x)
 // int hash(T x)
 // void rehash()
-import java.util.List;
-import java.util.LinkedList;
+// chains turn into balanced (AVL) trees past TREEIFY_THRESHOLD entries
+// and back into chains at UNTREEIFY_THRESHOLD; worst case O(log n) lookup
+// incremental mode: rehash keeps the old table and migrates a few buckets
+// per insert/remove instead of re-inserting everything in one call
 public class HashTable_SeparateChaining<T>{
-    private List<T>[] table;
+    private static final int TREEIFY_THRESHOLD = 8;
+    // BZ: must be below TREEIFY_THRESHOLD, o.w. a bucket flips back and forth
+    private static final int UNTREEIFY_THRESHOLD = 6;
+    // non-empty buckets moved per operation while migrating; must be >= 1
+    // so the old table drains before the new one fills up again
+    private static final int MIGRATE_STEP = 4;
+    // chain node; caches the full hashCode to skip most equals() calls
+    private static class Node<T>{
+        private final int hash;
+        private final T key;
+        private Node<T> next;
+        public Node(int hash, T key, Node<T> next){
+            this.hash = hash;
+            this.key = key;
+            this.next = next;
+        }
+    }
+    // AVL node ordered by hash, then by compareTo if keys are comparable
+    private static class TreeNode<T>{
+        private int hash;
+        private T key;
+        private TreeNode<T> left, right;
+        private int height;
+        public TreeNode(int hash, T key){
+            this.hash = hash;
+            this.key = key;
+            this.height = 1;
+        }
+    }
+    private static class TreeBin<T>{
+        private TreeNode<T> root;
+        private int count;
+    }
+    // each cell is null, a Node<T> chain head or a TreeBin<T>
+    private Object[] table;
+    // incremental mode only: table being drained; cells below migrateIndex are moved
+    private Object[] oldTable;
+    private int migrateIndex;
+    private final boolean incremental;
     private int size;
+    private boolean removed;  // set by the tree remove() on success
     public HashTable_SeparateChaining(){
+        this(false);
+    }
+    public HashTable_SeparateChaining(boolean incremental){
         this.size = 0;
-        // BZ: cannot create generic type array: LinkedList<T>[]/List<T>[]; 
-        // new LinkedList[N] or new List[N] would work;
-        // must initialize each cell after new List[N];
-        table = new LinkedList[101];
-        for(int i = 0; i < table.length; i++){
-            table[i] = new LinkedList<T>();
-        }
+        this.incremental = incremental;
+        // BZ: cannot create generic type array: Node<T>[];
+        // keep cells as Object and cast by kind of bucket
+        table = new Object[101];
     }
+    public int size(){ return this.size; }
     public boolean contains(T x){
-        int i = this.hash(x);
-        return this.table[i].contains(x);
+        int h = x.hashCode();
+        if(inOldTable(h) && containsIn(oldTable, indexFor(h, oldTable.length), h, x)) return true;
+        return containsIn(table, this.hash(x), h, x);
     }
-    public void insert(T x){
-        int i = this.hash(x);
-        if(table[i].contains(x)) return;
-        table[i].add(x);
+    public boolean insert(T x){
+        int h = x.hashCode();
+        if(oldTable != null){
+            migrateStep();
+            // BZ: a not yet migrated duplicate is still a duplicate
+            if(inOldTable(h) && containsIn(oldTable, indexFor(h, oldTable.length), h, x)) return false;
+        }
+        if(!insertInto(table, this.hash(x), h, x)) return false;
         // BZ: rehash after an insertion
         if(++this.size >= table.length) rehash();
+        return true;
     }
-    public void remove(T x){
-        int i = this.hash(x);
-        if(! table[i].contains(x)) return;
-        table[i].remove(x);
+    public boolean remove(T x){
+        int h = x.hashCode();
+        if(oldTable != null){
+            migrateStep();
+            if(inOldTable(h) && removeFrom(oldTable, indexFor(h, oldTable.length), h, x)){
+                this.size--;
+                return true;
+            }
+        }
+        if(!removeFrom(table, this.hash(x), h, x)) return false;
         this.size--;  // BZ: decrease size
+        return true;
     }
     private int hash(T x){
         // working only for objects of type T that have hashCode and equals
-        int hashval = x.hashCode();
+        return indexFor(x.hashCode(), this.table.length);
+    }
+    private static int indexFor(int hashval, int length){
         // ***BZ: must modular by table size
-        hashval %= this.table.length;
+        hashval %= length;
         // overflow case; put back into range of table
-        if(hashval < 0) hashval += this.table.length;
+        if(hashval < 0) hashval += length;
         return hashval;
     }
+    private boolean inOldTable(int h){
+        // x may still sit in the old table iff its old bucket is not migrated yet
+        return oldTable != null && indexFor(h, oldTable.length) >= migrateIndex;
+    }
     private void rehash(){
         // for separate chaining, rehash as soon as table is full
         if(this.size < this.table.length) return;
-        List<T>[] tmp = this.table;
-        this.table = new List[nextPrime(table.length * 2 + 1)];
-        // BZ: must initialize each cell after new List[N];
-        for(int i = 0; i < table.length; i++){
-            table[i] = new LinkedList<T>();
+        if(incremental){
+            // BZ: finish the previous migration before starting another one
+            while(oldTable != null) migrateStep();
+            oldTable = this.table;
+            migrateIndex = 0;
+            this.table = new Object[nextPrime(table.length * 2 + 1)];
+            return;
         }
+        Object[] tmp = this.table;
+        this.table = new Object[nextPrime(table.length * 2 + 1)];
         // BZ: for(int i = 0; ...) table[i] = tmp[i]? cannot just copy entry
         // ***insert each key again w/ new hash val under new table size
-        for(List<T> list : tmp){
-            for(T key : list) this.insert(key);
+        for(Object bin : tmp) transfer(bin);
+    }
+    private void migrateStep(){
+        // move up to MIGRATE_STEP non-empty buckets; bound the empty cells
+        // visited too, so a sparse old table costs O(1) per operation
+        int moved = 0, visited = 0;
+        while(migrateIndex < oldTable.length && moved < MIGRATE_STEP && visited < MIGRATE_STEP * 10){
+            Object bin = oldTable[migrateIndex];
+            oldTable[migrateIndex++] = null;
+            visited++;
+            if(bin != null){
+                transfer(bin);
+                moved++;
+            }
+        }
+        if(migrateIndex == oldTable.length) oldTable = null;
+    }
+    private void transfer(Object bin){
+        // re-insert every key of an old bucket into the current table; size unchanged
+        if(bin instanceof TreeBin) transfer(treeOf(bin).root);
+        else for(Node<T> e = chainOf(bin); e != null; e = e.next)
+            insertInto(table, indexFor(e.hash, table.length), e.hash, e.key);
+    }
+    private void transfer(TreeNode<T> t){
+        if(t == null) return;
+        transfer(t.left);
+        insertInto(table, indexFor(t.hash, table.length), t.hash, t.key);
+        transfer(t.right);
+    }
+
+    // -----bucket operations-----
+    // the only casts back from an Object cell; see the table comment
+    @SuppressWarnings("unchecked")
+    private Node<T> chainOf(Object bin){ return (Node<T>) bin; }
+    @SuppressWarnings("unchecked")
+    private TreeBin<T> treeOf(Object bin){ return (TreeBin<T>) bin; }
+    private boolean containsIn(Object[] tab, int i, int h, T x){
+        Object bin = tab[i];
+        if(bin instanceof TreeBin) return find(treeOf(bin).root, h, x) != null;
+        for(Node<T> e = chainOf(bin); e != null; e = e.next)
+            if(e.hash == h && e.key.equals(x)) return true;
+        return false;
+    }
+    private boolean insertInto(Object[] tab, int i, int h, T x){
+        // single pass: walk the chain once, stop on a duplicate,
+        // o.w. append at the tail; treeify if the chain gets too long
+        Object bin = tab[i];
+        if(bin instanceof TreeBin){
+            TreeBin<T> tb = treeOf(bin);
+            if(find(tb.root, h, x) != null) return false;
+            tb.root = insert(tb.root, h, x);
+            tb.count++;
+            return true;
+        }
+        Node<T> head = chainOf(bin);
+        if(head == null){
+            tab[i] = new Node<T>(h, x, null);
+            return true;
+        }
+        int len = 1;
+        Node<T> e = head;
+        while(true){
+            if(e.hash == h && e.key.equals(x)) return false;
+            if(e.next == null) break;
+            e = e.next;
+            len++;
+        }
+        e.next = new Node<T>(h, x, null);
+        if(len + 1 >= TREEIFY_THRESHOLD) treeify(tab, i);
+        return true;
+    }
+    private boolean removeFrom(Object[] tab, int i, int h, T x){
+        // single pass: unlink w/ the trailing pointer instead of contains() + remove()
+        Object bin = tab[i];
+        if(bin instanceof TreeBin){
+            TreeBin<T> tb = treeOf(bin);
+            removed = false;
+            tb.root = remove(tb.root, h, x);
+            if(!removed) return false;
+            if(--tb.count <= UNTREEIFY_THRESHOLD) untreeify(tab, i);
+            return true;
+        }
+        Node<T> prev = null, e = chainOf(bin);
+        while(e != null && !(e.hash == h && e.key.equals(x))){
+            prev = e;
+            e = e.next;
         }
+        if(e == null) return false;
+        if(prev == null) tab[i] = e.next;
+        else prev.next = e.next;
+        return true;
+    }
+
+    // -----bucket conversion-----
+    private void treeify(Object[] tab, int i){
+        TreeBin<T> tb = new TreeBin<T>();
+        for(Node<T> e = chainOf(tab[i]); e != null; e = e.next){
+            tb.root = insert(tb.root, e.hash, e.key);
+            tb.count++;
+        }
+        tab[i] = tb;
+    }
+    private void untreeify(Object[] tab, int i){
+        // rebuild the chain from the in-order walk, back to front
+        TreeBin<T> tb = treeOf(tab[i]);
+        tab[i] = toChain(tb.root, null);
+    }
+    private Node<T> toChain(TreeNode<T> t, Node<T> tail){
+        if(t == null) return tail;
+        tail = toChain(t.right, tail);
+        tail = new Node<T>(t.hash, t.key, tail);
+        return toChain(t.left, tail);
+    }
+
+    // -----AVL bucket tree-----
+    private TreeNode<T> find(TreeNode<T> t, int h, T x){
+        // go by hash first, then compareTo; if neither tells the way
+        // (same hash, not comparable), x may be on either side
+        while(t != null){
+            if(h < t.hash) t = t.left;
+            else if(h > t.hash) t = t.right;
+            else if(t.key.equals(x)) return t;
+            else{
+                int cmp = compareKeys(x, t.key);
+                if(cmp < 0) t = t.left;
+                else if(cmp > 0) t = t.right;
+                else{
+                    TreeNode<T> r = find(t.right, h, x);
+                    if(r != null) return r;
+                    t = t.left;
+                }
+            }
+        }
+        return null;
+    }
+    private TreeNode<T> insert(TreeNode<T> t, int h, T x){
+        // caller guarantees x is absent
+        if(t == null) return new TreeNode<T>(h, x);
+        if(order(h, x, t) < 0) t.left = insert(t.left, h, x);
+        else t.right = insert(t.right, h, x);
+        return balance(t);
+    }
+    private TreeNode<T> remove(TreeNode<T> t, int h, T x){
+        // same search as find(); on an unresolved tie try right then left
+        if(t == null) return null;
+        if(h == t.hash && t.key.equals(x)){
+            removed = true;
+            if(t.left == null || t.right == null)
+                return t.left == null ? t.right : t.left;
+            // two children case: replace by right min and drop it from right
+            TreeNode<T> min = t.right;
+            while(min.left != null) min = min.left;
+            t.hash = min.hash;
+            t.key = min.key;
+            t.right = removeMin(t.right);
+            return balance(t);
+        }
+        int cmp = h < t.hash ? -1 : h > t.hash ? 1 : compareKeys(x, t.key);
+        if(cmp < 0) t.left = remove(t.left, h, x);
+        else if(cmp > 0) t.right = remove(t.right, h, x);
+        else{
+            t.right = remove(t.right, h, x);
+            if(!removed) t.left = remove(t.left, h, x);
+        }
+        return balance(t);
+    }
+    private TreeNode<T> removeMin(TreeNode<T> t){
+        if(t.left == null) return t.right;
+        t.left = removeMin(t.left);
+        return balance(t);
+    }
+    private int order(int h, T x, TreeNode<T> t){
+        // total order used to place new keys: hash, compareTo, then a tie break
+        if(h != t.hash) return h < t.hash ? -1 : 1;
+        int cmp = compareKeys(x, t.key);
+        if(cmp != 0) return cmp;
+        cmp = x.getClass().getName().compareTo(t.key.getClass().getName());
+        if(cmp != 0) return cmp;
+        return System.identityHashCode(x) <= System.identityHashCode(t.key) ? -1 : 1;
+    }
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object a, Object b){
+        // 0 means "cannot tell": different classes or not Comparable
+        if(!(a instanceof Comparable) || a.getClass() != b.getClass()) return 0;
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+    private static <T> int height(TreeNode<T> t){ return t == null ? 0 : t.height; }
+    private static <T> void update(TreeNode<T> t){
+        t.height = 1 + Math.max(height(t.left), height(t.right));
+    }
+    private TreeNode<T> balance(TreeNode<T> t){
+        // rotate when the two subtree heights differ by more than 1
+        update(t);
+        int diff = height(t.left) - height(t.right);
+        if(diff > 1){
+            // BZ: left-right case needs a double rotation
+            if(height(t.left.left) < height(t.left.right)) t.left = rotateLeft(t.left);
+            return rotateRight(t);
+        }
+        if(diff < -1){
+            if(height(t.right.right) < height(t.right.left)) t.right = rotateRight(t.right);
+            return rotateLeft(t);
+        }
+        return t;
+    }
+    private TreeNode<T> rotateRight(TreeNode<T> t){
+        TreeNode<T> l = t.left;
+        t.left = l.right;
+        l.right = t;
+        update(t);
+        update(l);
+        return l;
+    }
+    private TreeNode<T> rotateLeft(TreeNode<T> t){
+        TreeNode<T> r = t.right;
+        t.right = r.left;
+        r.left = t;
+        update(t);
+        update(r);
+        return r;
     }
 
     /**
@@ -85,21 +368,54 @@ public class HashTable_SeparateChaining<T>{
             if( n % i == 0 ) return false;
         return true;
     }
+
+    // key w/ a constant hashCode; every instance lands in the same bucket
+    private static class BadKey implements Comparable<BadKey>{
+        private final int val;
+        public BadKey(int val){ this.val = val; }
+        public int hashCode(){ return 42; }
+        public boolean equals(Object o){ return o instanceof BadKey && ((BadKey) o).val == val; }
+        public int compareTo(BadKey o){ return Integer.compare(val, o.val); }
+    }
     public static void main( String [ ] args ){
-        HashTable_SeparateChaining<Integer> H = new HashTable_SeparateChaining<>( );
-        long startTime = System.currentTimeMillis( );      
         final int NUMS = 2000000;
         final int GAP  =   37;
         System.out.println( "Checking... (no more output means success)" );
-        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.insert( i );
-        for( int i = 1; i < NUMS; i+= 2 ) H.remove( i );  // remove all odds
-        for( int i = 2; i < NUMS; i+=2 )
-            if( !H.contains( i ) )
+        for( boolean incremental : new boolean[ ]{ false, true } ){
+            HashTable_SeparateChaining<Integer> H = new HashTable_SeparateChaining<>( incremental );
+            long startTime = System.currentTimeMillis( );
+            for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.insert( i );
+            for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+                if( H.insert( i ) ) System.out.println( "OOPS!!! " + i );
+            for( int i = 1; i < NUMS; i+= 2 )  // remove all odds
+                if( !H.remove( i ) ) System.out.println( "Remove fails " + i );
+            if( H.remove( 1 ) ) System.out.println( "OOPS!!! removed twice" );
+            for( int i = 2; i < NUMS; i+=2 )
+                if( !H.contains( i ) )
+                    System.out.println( "Find fails " + i );
+            for( int i = 1; i < NUMS; i+=2 )
+                if( H.contains( i ) )
+                    System.out.println( "OOPS!!! " +  i  );
+            if( H.size( ) != NUMS / 2 - 1 ) System.out.println( "Size fails " + H.size( ) );
+            long endTime = System.currentTimeMillis( );
+            System.out.println( ( incremental ? "Incremental" : "Stop-the-world" )
+                                + " elapsed time: " + (endTime - startTime) );
+        }
+
+        // adversarial hashCode: one bucket, stays O(log n) once treeified
+        HashTable_SeparateChaining<BadKey> B = new HashTable_SeparateChaining<>( );
+        final int BAD = 50000;
+        long startTime = System.currentTimeMillis( );
+        for( int i = 0; i < BAD; i++ ) B.insert( new BadKey( i ) );
+        for( int i = 0; i < BAD; i++ )
+            if( B.insert( new BadKey( i ) ) ) System.out.println( "OOPS!!! " + i );
+        for( int i = 1; i < BAD; i+=2 ) B.remove( new BadKey( i ) );
+        for( int i = 0; i < BAD; i++ )
+            if( B.contains( new BadKey( i ) ) != ( i % 2 == 0 ) )
                 System.out.println( "Find fails " + i );
-        for( int i = 1; i < NUMS; i+=2 )
-            if( H.contains( i ) )
-                System.out.println( "OOPS!!! " +  i  );     
+        for( int i = 0; i < BAD; i+=2 ) B.remove( new BadKey( i ) );  // back to a chain
+        if( B.size( ) != 0 ) System.out.println( "Size fails " + B.size( ) );
         long endTime = System.currentTimeMillis( );
-        System.out.println( "Elapsed time: " + (endTime - startTime) );
+        System.out.println( "Colliding keys elapsed time: " + (endTime - startTime) );
     }
 }
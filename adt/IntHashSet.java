@@ -0,0 +1,171 @@
+// -----IntHashSet ADT-----
+// int size()
+// boolean isEmpty()
+// boolean contains(int x)
+// boolean add(int x)
+// boolean remove(int x)
+// void clear()
+// int[] toArray()
+// open addressing w/ linear probing on a primitive int[] table;
+// no per-entry objects: ~4 bytes per slot, 5.3-10.7 bytes per key
+// between loads .375 (just grown) and .75
+public class IntHashSet{
+    // 0 marks an empty slot; the key 0 itself is kept by a separate flag
+    private static final int FREE = 0;
+    // linear probing w/ backward shift stays short up to ~.75
+    static final float LOAD_FACTOR = 0.75f;
+    static final int MAX_CAPACITY = 1 << 30;
+    private int[] keys;
+    private int mask;
+    private int size;
+    private boolean hasFree;  // whether key 0 is in the set
+    private int threshold;
+    public IntHashSet(){
+        this(16);
+    }
+    public IntHashSet(int expected){
+        allocate(tableSizeFor(expected));
+    }
+    public int size(){ return this.size; }
+    public boolean isEmpty(){ return this.size == 0; }
+    public boolean contains(int x){
+        if(x == FREE) return hasFree;
+        // probe forward till the match or the first empty slot
+        int i = hash(x) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == x) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+    public boolean add(int x){
+        if(x == FREE){
+            if(hasFree) return false;
+            hasFree = true;
+            size++;
+            return true;
+        }
+        // single pass: stop at the match (duplicate) or an empty slot
+        int i = hash(x) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == x) return false;
+            i = (i + 1) & mask;
+        }
+        checkRoom();
+        keys[i] = x;
+        // BZ: rehash after an insertion
+        if(++size >= threshold) rehash(keys.length * 2);
+        return true;
+    }
+    public boolean remove(int x){
+        if(x == FREE){
+            if(!hasFree) return false;
+            hasFree = false;
+            size--;
+            return true;
+        }
+        int i = hash(x) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == x){
+                shiftKeys(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+    public void clear(){
+        java.util.Arrays.fill(keys, FREE);
+        hasFree = false;
+        size = 0;
+    }
+    public int[] toArray(){
+        int[] result = new int[size];
+        int k = 0;
+        if(hasFree) result[k++] = FREE;
+        for(int key : keys)
+            if(key != FREE) result[k++] = key;
+        return result;
+    }
+    private void shiftKeys(int i){
+        // backward-shift deletion instead of lazy "deleted" flags:
+        // move up any later key of the run whose home slot is not in (i, j];
+        // so probes never need to bridge over tombstones
+        int j = i;
+        while(true){
+            j = (j + 1) & mask;
+            int key = keys[j];
+            if(key == FREE) break;
+            int home = hash(key) & mask;
+            // BZ: cyclic range check; the run may wrap around the table end
+            if(i <= j ? (i < home && home <= j) : (i < home || home <= j)) continue;
+            keys[i] = key;
+            i = j;
+        }
+        keys[i] = FREE;
+    }
+    private void checkRoom(){
+        // BZ: keys.length * 2 overflows past MAX_CAPACITY; refuse a new
+        // key before storing it, so the table stays as it was
+        if(size + 1 >= threshold && keys.length == MAX_CAPACITY)
+            throw new IllegalStateException("IntHashSet is full: " + size + " keys");
+    }
+    private void rehash(int capacity){
+        // re-insert each non-empty key into the doubled table;
+        // no duplicate check needed since keys are already unique
+        int[] tmp = keys;
+        allocate(capacity);
+        for(int key : tmp){
+            if(key == FREE) continue;
+            int i = hash(key) & mask;
+            while(keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = key;
+        }
+    }
+    private void allocate(int capacity){
+        keys = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+    static int hash(int x){
+        // mix the bits (murmur3 finalizer) so that sequential ints
+        // do not form long runs under a power-of-two mask
+        x ^= x >>> 16;
+        x *= 0x85ebca6b;
+        x ^= x >>> 13;
+        x *= 0xc2b2ae35;
+        x ^= x >>> 16;
+        return x;
+    }
+    static int tableSizeFor(int expected){
+        // smallest power of two holding expected keys under the load factor
+        long need = (long) Math.ceil(Math.max(expected, 2) / LOAD_FACTOR);
+        int n = 4;
+        while(n < need && n < MAX_CAPACITY) n <<= 1;
+        return n;
+    }
+
+    public static void main( String [ ] args ){
+        IntHashSet H = new IntHashSet( );
+        long startTime = System.currentTimeMillis( );
+        final int NUMS = 2000000;
+        final int GAP  =   37;
+        System.out.println( "Checking... (no more output means success)" );
+        H.add( 0 );
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.add( i );
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            if( H.add( i ) ) System.out.println( "OOPS!!! " + i );
+        for( int i = 1; i < NUMS; i+= 2 ) H.remove( i );  // remove all odds
+        if( H.size( ) != NUMS / 2 ) System.out.println( "Size fails " + H.size( ) );
+        for( int i = 0; i < NUMS; i+=2 )
+            if( !H.contains( i ) )
+                System.out.println( "Find fails " + i );
+        for( int i = 1; i < NUMS; i+=2 )
+            if( H.contains( i ) )
+                System.out.println( "OOPS!!! " +  i  );
+        if( H.toArray( ).length != H.size( ) ) System.out.println( "toArray fails" );
+        long endTime = System.currentTimeMillis( );
+        System.out.println( "Elapsed time: " + (endTime - startTime) );
+    }
+}
@@ -0,0 +1,177 @@
+// -----IntIntHashMap ADT-----
+// int size()
+// boolean isEmpty()
+// boolean containsKey(int key)
+// int get(int key)  // missing value if absent
+// int getOrDefault(int key, int def)
+// int put(int key, int value)
+// int addTo(int key, int delta)
+// int remove(int key)
+// void clear()
+// open addressing w/ linear probing on parallel int[] keys/values;
+// no boxing and no per-entry objects: ~8 bytes per slot, so
+// 10.7-21 bytes per entry between loads .75 and .375 (just grown)
+public class IntIntHashMap{
+    private static final int FREE = 0;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    // the key 0 marks empty slots, so its entry lives outside the table
+    private boolean hasFree;
+    private int freeValue;
+    // returned by get/put/remove when the key is absent
+    private final int missingValue;
+    public IntIntHashMap(){
+        this(16, 0);
+    }
+    public IntIntHashMap(int expected, int missingValue){
+        this.missingValue = missingValue;
+        allocate(IntHashSet.tableSizeFor(expected));
+    }
+    public int size(){ return this.size; }
+    public boolean isEmpty(){ return this.size == 0; }
+    public int missingValue(){ return this.missingValue; }
+    public boolean containsKey(int key){
+        if(key == FREE) return hasFree;
+        return slotOf(key) >= 0;
+    }
+    public int get(int key){
+        return getOrDefault(key, missingValue);
+    }
+    public int getOrDefault(int key, int def){
+        if(key == FREE) return hasFree ? freeValue : def;
+        int i = slotOf(key);
+        return i < 0 ? def : values[i];
+    }
+    public int put(int key, int value){
+        // return the previous value, or missing value if newly inserted
+        if(key == FREE){
+            int prev = hasFree ? freeValue : missingValue;
+            if(!hasFree){ hasFree = true; size++; }
+            freeValue = value;
+            return prev;
+        }
+        int i = IntHashSet.hash(key) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == key){
+                int prev = values[i];
+                values[i] = value;
+                return prev;
+            }
+            i = (i + 1) & mask;
+        }
+        checkRoom();
+        keys[i] = key;
+        values[i] = value;
+        if(++size >= threshold) rehash(keys.length * 2);
+        return missingValue;
+    }
+    public int addTo(int key, int delta){
+        // counter update in a single probe; absent keys start from 0;
+        // return the new value
+        if(key == FREE){
+            if(!hasFree){ hasFree = true; freeValue = 0; size++; }
+            return freeValue += delta;
+        }
+        int i = IntHashSet.hash(key) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == key) return values[i] += delta;
+            i = (i + 1) & mask;
+        }
+        checkRoom();
+        keys[i] = key;
+        values[i] = delta;
+        if(++size >= threshold) rehash(keys.length * 2);
+        return delta;
+    }
+    public int remove(int key){
+        if(key == FREE){
+            if(!hasFree) return missingValue;
+            hasFree = false;
+            size--;
+            return freeValue;
+        }
+        int i = slotOf(key);
+        if(i < 0) return missingValue;
+        int prev = values[i];
+        shiftKeys(i);
+        size--;
+        return prev;
+    }
+    public void clear(){
+        java.util.Arrays.fill(keys, FREE);
+        hasFree = false;
+        size = 0;
+    }
+    private int slotOf(int key){
+        int i = IntHashSet.hash(key) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+    private void shiftKeys(int i){
+        // backward-shift deletion; see IntHashSet.shiftKeys
+        int j = i;
+        while(true){
+            j = (j + 1) & mask;
+            int key = keys[j];
+            if(key == FREE) break;
+            int home = IntHashSet.hash(key) & mask;
+            if(i <= j ? (i < home && home <= j) : (i < home || home <= j)) continue;
+            keys[i] = key;
+            values[i] = values[j];
+            i = j;
+        }
+        keys[i] = FREE;
+    }
+    private void checkRoom(){
+        // fail before storing at the size cap; see IntHashSet.checkRoom
+        if(size + 1 >= threshold && keys.length == IntHashSet.MAX_CAPACITY)
+            throw new IllegalStateException("IntIntHashMap is full: " + size + " keys");
+    }
+    private void rehash(int capacity){
+        int[] oldKeys = keys, oldValues = values;
+        allocate(capacity);
+        for(int k = 0; k < oldKeys.length; k++){
+            if(oldKeys[k] == FREE) continue;
+            int i = IntHashSet.hash(oldKeys[k]) & mask;
+            while(keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = oldKeys[k];
+            values[i] = oldValues[k];
+        }
+    }
+    private void allocate(int capacity){
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * IntHashSet.LOAD_FACTOR);
+    }
+
+    public static void main( String [ ] args ){
+        IntIntHashMap H = new IntIntHashMap( 16, -1 );
+        long startTime = System.currentTimeMillis( );
+        final int NUMS = 2000000;
+        final int GAP  =   37;
+        System.out.println( "Checking... (no more output means success)" );
+        H.put( 0, 0 );
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.put( i, -i );
+        for( int i = 1; i < NUMS; i+= 2 )
+            if( H.remove( i ) != -i ) System.out.println( "Remove fails " + i );
+        for( int i = 0; i < NUMS; i+=2 ){
+            if( H.get( i ) != -i ) System.out.println( "Find fails " + i );
+            H.addTo( i, i );
+        }
+        for( int i = 0; i < NUMS; i+=2 )
+            if( H.get( i ) != 0 ) System.out.println( "addTo fails " + i );
+        for( int i = 1; i < NUMS; i+=2 )
+            if( H.containsKey( i ) || H.get( i ) != -1 )
+                System.out.println( "OOPS!!! " +  i  );
+        if( H.size( ) != NUMS / 2 ) System.out.println( "Size fails " + H.size( ) );
+        long endTime = System.currentTimeMillis( );
+        System.out.println( "Elapsed time: " + (endTime - startTime) );
+    }
+}
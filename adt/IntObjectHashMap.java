@@ -0,0 +1,151 @@
+// -----IntObjectHashMap ADT-----
+// int size()
+// boolean isEmpty()
+// boolean containsKey(int key)
+// V get(int key)  // null if absent
+// V put(int key, V value)
+// V remove(int key)
+// void clear()
+// open addressing w/ linear probing on int[] keys + Object[] values;
+// keys are never boxed and no Entry object is allocated per mapping
+public class IntObjectHashMap<V>{
+    private static final int FREE = 0;
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    private boolean hasFree;
+    private V freeValue;
+    public IntObjectHashMap(){
+        this(16);
+    }
+    public IntObjectHashMap(int expected){
+        allocate(IntHashSet.tableSizeFor(expected));
+    }
+    public int size(){ return this.size; }
+    public boolean isEmpty(){ return this.size == 0; }
+    public boolean containsKey(int key){
+        if(key == FREE) return hasFree;
+        return slotOf(key) >= 0;
+    }
+    public V get(int key){
+        if(key == FREE) return freeValue;
+        int i = slotOf(key);
+        return i < 0 ? null : valueAt(i);
+    }
+    public V put(int key, V value){
+        if(key == FREE){
+            V prev = freeValue;
+            if(!hasFree){ hasFree = true; size++; }
+            freeValue = value;
+            return prev;
+        }
+        int i = IntHashSet.hash(key) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == key){
+                V prev = valueAt(i);
+                values[i] = value;
+                return prev;
+            }
+            i = (i + 1) & mask;
+        }
+        checkRoom();
+        keys[i] = key;
+        values[i] = value;
+        if(++size >= threshold) rehash(keys.length * 2);
+        return null;
+    }
+    public V remove(int key){
+        if(key == FREE){
+            if(!hasFree) return null;
+            V prev = freeValue;
+            hasFree = false;
+            freeValue = null;
+            size--;
+            return prev;
+        }
+        int i = slotOf(key);
+        if(i < 0) return null;
+        V prev = valueAt(i);
+        shiftKeys(i);
+        size--;
+        return prev;
+    }
+    public void clear(){
+        java.util.Arrays.fill(keys, FREE);
+        java.util.Arrays.fill(values, null);  // BZ: release refs for GC
+        hasFree = false;
+        freeValue = null;
+        size = 0;
+    }
+    private int slotOf(int key){
+        int i = IntHashSet.hash(key) & mask;
+        while(keys[i] != FREE){
+            if(keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+    private void shiftKeys(int i){
+        // backward-shift deletion; see IntHashSet.shiftKeys
+        int j = i;
+        while(true){
+            j = (j + 1) & mask;
+            int key = keys[j];
+            if(key == FREE) break;
+            int home = IntHashSet.hash(key) & mask;
+            if(i <= j ? (i < home && home <= j) : (i < home || home <= j)) continue;
+            keys[i] = key;
+            values[i] = values[j];
+            i = j;
+        }
+        keys[i] = FREE;
+        values[i] = null;  // BZ: don't leak the moved/removed value
+    }
+    @SuppressWarnings("unchecked")
+    private V valueAt(int i){
+        // values[] only ever holds V's put in
+        return (V) values[i];
+    }
+    private void checkRoom(){
+        // fail before storing at the size cap; see IntHashSet.checkRoom
+        if(size + 1 >= threshold && keys.length == IntHashSet.MAX_CAPACITY)
+            throw new IllegalStateException("IntObjectHashMap is full: " + size + " keys");
+    }
+    private void rehash(int capacity){
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for(int k = 0; k < oldKeys.length; k++){
+            if(oldKeys[k] == FREE) continue;
+            int i = IntHashSet.hash(oldKeys[k]) & mask;
+            while(keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = oldKeys[k];
+            values[i] = oldValues[k];
+        }
+    }
+    private void allocate(int capacity){
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * IntHashSet.LOAD_FACTOR);
+    }
+
+    public static void main( String [ ] args ){
+        IntObjectHashMap<String> H = new IntObjectHashMap<>( );
+        final int NUMS = 200000;
+        final int GAP  =   37;
+        System.out.println( "Checking... (no more output means success)" );
+        H.put( 0, "0" );
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) H.put( i, ""+i );
+        for( int i = 1; i < NUMS; i+= 2 )
+            if( !(""+i).equals( H.remove( i ) ) ) System.out.println( "Remove fails " + i );
+        for( int i = 0; i < NUMS; i+=2 )
+            if( !(""+i).equals( H.get( i ) ) ) System.out.println( "Find fails " + i );
+        for( int i = 1; i < NUMS; i+=2 )
+            if( H.containsKey( i ) || H.get( i ) != null )
+                System.out.println( "OOPS!!! " +  i  );
+        if( H.size( ) != NUMS / 2 ) System.out.println( "Size fails " + H.size( ) );
+    }
+}
@@ -0,0 +1,331 @@
+// -----LongBPlusTree (ordered map) ADT-----
+// int size()
+// boolean isEmpty()
+// boolean containsKey(long key)
+// V get(long key)
+// V put(long key, V val)
+// V remove(long key)
+// int rangeScan(long lo, long hi, Visitor<V> visitor)  // keys in [lo, hi]
+// B+-tree on primitive long keys: inner nodes only route, values live in
+// leaves, and leaves are linked for range scans; each node holds up to
+// `order` keys in one long[] (default 64 keys = 8 cache lines), so a lookup
+// touches O(log_order n) nodes and binary-searches within contiguous memory
+public class LongBPlusTree<V>{
+    public interface Visitor<V>{
+        void visit(long key, V val);
+    }
+    private static final int DEFAULT_ORDER = 64;
+    private static final int MAX_HEIGHT = 64;
+    private static class Node{
+        int n;  // # keys in use
+        final long[] keys;
+        public Node(int order){
+            // BZ: one spare slot, a node overflows by one key before it splits
+            this.keys = new long[order + 1];
+        }
+    }
+    private static class Leaf extends Node{
+        private final Object[] vals;
+        private Leaf next;
+        public Leaf(int order){
+            super(order);
+            this.vals = new Object[order + 1];
+        }
+    }
+    private static class Inner extends Node{
+        // kids[i] holds keys in [keys[i-1], keys[i])
+        private final Node[] kids;
+        public Inner(int order){
+            super(order);
+            this.kids = new Node[order + 2];
+        }
+    }
+
+    private final int order;
+    private final int minKeys;
+    private Node root;
+    private int size;
+    // path stack reused by put/remove: inner nodes and the child index taken
+    private final Inner[] path = new Inner[MAX_HEIGHT];
+    private final int[] pathIndex = new int[MAX_HEIGHT];
+    public LongBPlusTree(){
+        this(DEFAULT_ORDER);
+    }
+    public LongBPlusTree(int order){
+        if(order < 4) throw new IllegalArgumentException("order must be >= 4");
+        this.order = order;
+        this.minKeys = order / 2;
+        this.root = new Leaf(order);
+    }
+    public int size(){ return this.size; }
+    public boolean isEmpty(){ return this.size == 0; }
+    public boolean containsKey(long key){
+        Leaf leaf = findLeaf(key);
+        int i = lowerBound(leaf.keys, leaf.n, key);
+        return i < leaf.n && leaf.keys[i] == key;
+    }
+    public V get(long key){
+        Leaf leaf = findLeaf(key);
+        int i = lowerBound(leaf.keys, leaf.n, key);
+        return i < leaf.n && leaf.keys[i] == key ? valAt(leaf, i) : null;
+    }
+    private Leaf findLeaf(long key){
+        Node t = root;
+        while(t instanceof Inner){
+            Inner in = (Inner) t;
+            t = in.kids[upperBound(in.keys, in.n, key)];
+        }
+        return (Leaf) t;
+    }
+
+    public V put(long key, V val){
+        // descend recording the path; insert into the leaf; split any node
+        // that overflows and push its separator up into the parent
+        int d = descend(key);
+        Leaf leaf = (Leaf) (d == 0 ? root : path[d - 1].kids[pathIndex[d - 1]]);
+        int i = lowerBound(leaf.keys, leaf.n, key);
+        if(i < leaf.n && leaf.keys[i] == key){
+            V old = valAt(leaf, i);
+            leaf.vals[i] = val;
+            clearPath(d);
+            return old;
+        }
+        System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.n - i);
+        System.arraycopy(leaf.vals, i, leaf.vals, i + 1, leaf.n - i);
+        leaf.keys[i] = key;
+        leaf.vals[i] = val;
+        leaf.n++;
+        size++;
+        if(leaf.n > order) splitLeaf(leaf, d);
+        clearPath(d);
+        return null;
+    }
+    private int descend(long key){
+        int d = 0;
+        Node t = root;
+        while(t instanceof Inner){
+            Inner in = (Inner) t;
+            int c = upperBound(in.keys, in.n, key);
+            path[d] = in;
+            pathIndex[d++] = c;
+            t = in.kids[c];
+        }
+        return d;
+    }
+    private void splitLeaf(Leaf leaf, int d){
+        // right half moves to a new leaf; its first key is copied up
+        Leaf right = new Leaf(order);
+        int mid = leaf.n / 2;
+        right.n = leaf.n - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.n);
+        System.arraycopy(leaf.vals, mid, right.vals, 0, right.n);
+        java.util.Arrays.fill(leaf.vals, mid, leaf.n, null);
+        leaf.n = mid;
+        right.next = leaf.next;
+        leaf.next = right;
+        insertUp(right.keys[0], right, d);
+    }
+    private void insertUp(long sep, Node right, int d){
+        // add (sep, right) next to the split child in each ancestor;
+        // an inner node split moves its middle key up (not copied)
+        while(d > 0){
+            Inner parent = path[--d];
+            int c = pathIndex[d];
+            System.arraycopy(parent.keys, c, parent.keys, c + 1, parent.n - c);
+            System.arraycopy(parent.kids, c + 1, parent.kids, c + 2, parent.n - c);
+            parent.keys[c] = sep;
+            parent.kids[c + 1] = right;
+            if(++parent.n <= order) return;
+            Inner sibling = new Inner(order);
+            int mid = parent.n / 2;
+            sep = parent.keys[mid];
+            sibling.n = parent.n - mid - 1;
+            System.arraycopy(parent.keys, mid + 1, sibling.keys, 0, sibling.n);
+            System.arraycopy(parent.kids, mid + 1, sibling.kids, 0, sibling.n + 1);
+            java.util.Arrays.fill(parent.kids, mid + 1, parent.n + 1, null);
+            parent.n = mid;
+            right = sibling;
+        }
+        // BZ: root split grows the tree by one level
+        Inner newRoot = new Inner(order);
+        newRoot.n = 1;
+        newRoot.keys[0] = sep;
+        newRoot.kids[0] = root;
+        newRoot.kids[1] = right;
+        root = newRoot;
+    }
+
+    public V remove(long key){
+        // remove from the leaf; fix underflow bottom-up by borrowing from
+        // a sibling when it has spare keys, o.w. merging w/ it
+        int d = descend(key);
+        Leaf leaf = (Leaf) (d == 0 ? root : path[d - 1].kids[pathIndex[d - 1]]);
+        int i = lowerBound(leaf.keys, leaf.n, key);
+        if(i >= leaf.n || leaf.keys[i] != key){
+            clearPath(d);
+            return null;
+        }
+        V old = valAt(leaf, i);
+        System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.n - i - 1);
+        System.arraycopy(leaf.vals, i + 1, leaf.vals, i, leaf.n - i - 1);
+        leaf.vals[--leaf.n] = null;
+        size--;
+        Node node = leaf;
+        while(d > 0 && node.n < minKeys){
+            Inner parent = path[--d];
+            int c = pathIndex[d];
+            if(node instanceof Leaf) fixLeaf(parent, c);
+            else fixInner(parent, c);
+            node = parent;
+        }
+        // BZ: an inner root left w/ a single child is dropped
+        if(root instanceof Inner && root.n == 0) root = ((Inner) root).kids[0];
+        clearPath(MAX_HEIGHT);
+        return old;
+    }
+    private void fixLeaf(Inner parent, int c){
+        Leaf node = (Leaf) parent.kids[c];
+        Leaf left = c > 0 ? (Leaf) parent.kids[c - 1] : null;
+        Leaf right = c < parent.n ? (Leaf) parent.kids[c + 1] : null;
+        if(left != null && left.n > minKeys){
+            // borrow left's last entry; node's new first key is the separator
+            System.arraycopy(node.keys, 0, node.keys, 1, node.n);
+            System.arraycopy(node.vals, 0, node.vals, 1, node.n);
+            node.keys[0] = left.keys[left.n - 1];
+            node.vals[0] = left.vals[left.n - 1];
+            left.vals[--left.n] = null;
+            node.n++;
+            parent.keys[c - 1] = node.keys[0];
+        }
+        else if(right != null && right.n > minKeys){
+            node.keys[node.n] = right.keys[0];
+            node.vals[node.n++] = right.vals[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+            System.arraycopy(right.vals, 1, right.vals, 0, right.n - 1);
+            right.vals[--right.n] = null;
+            parent.keys[c] = right.keys[0];
+        }
+        else if(left != null) mergeLeaves(parent, c - 1, left, node);
+        else mergeLeaves(parent, c, node, right);
+    }
+    private void mergeLeaves(Inner parent, int s, Leaf left, Leaf right){
+        // append right into left, unlink right from the leaf list and parent
+        System.arraycopy(right.keys, 0, left.keys, left.n, right.n);
+        System.arraycopy(right.vals, 0, left.vals, left.n, right.n);
+        left.n += right.n;
+        left.next = right.next;
+        removeFromParent(parent, s);
+    }
+    private void fixInner(Inner parent, int c){
+        Inner node = (Inner) parent.kids[c];
+        Inner left = c > 0 ? (Inner) parent.kids[c - 1] : null;
+        Inner right = c < parent.n ? (Inner) parent.kids[c + 1] : null;
+        if(left != null && left.n > minKeys){
+            // rotate through the parent: separator comes down, left's last key goes up
+            System.arraycopy(node.keys, 0, node.keys, 1, node.n);
+            System.arraycopy(node.kids, 0, node.kids, 1, node.n + 1);
+            node.keys[0] = parent.keys[c - 1];
+            node.kids[0] = left.kids[left.n];
+            node.n++;
+            parent.keys[c - 1] = left.keys[left.n - 1];
+            left.kids[left.n--] = null;
+        }
+        else if(right != null && right.n > minKeys){
+            node.keys[node.n] = parent.keys[c];
+            node.kids[++node.n] = right.kids[0];
+            parent.keys[c] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+            System.arraycopy(right.kids, 1, right.kids, 0, right.n);
+            right.kids[right.n--] = null;
+        }
+        else{
+            int s = left != null ? c - 1 : c;
+            Inner l = left != null ? left : node, r = left != null ? node : right;
+            // BZ: the separator comes down between the two halves
+            l.keys[l.n] = parent.keys[s];
+            System.arraycopy(r.keys, 0, l.keys, l.n + 1, r.n);
+            System.arraycopy(r.kids, 0, l.kids, l.n + 1, r.n + 1);
+            l.n += r.n + 1;
+            removeFromParent(parent, s);
+        }
+    }
+    private void removeFromParent(Inner parent, int s){
+        // drop separator s and the child to its right
+        System.arraycopy(parent.keys, s + 1, parent.keys, s, parent.n - s - 1);
+        System.arraycopy(parent.kids, s + 2, parent.kids, s + 1, parent.n - s - 1);
+        parent.kids[parent.n--] = null;
+    }
+    private void clearPath(int d){
+        for(int i = 0; i < d && path[i] != null; i++) path[i] = null;
+    }
+
+    public int rangeScan(long lo, long hi, Visitor<V> visitor){
+        // find lo's leaf once, then walk the leaf list; return # keys visited
+        if(lo > hi) return 0;
+        Leaf leaf = findLeaf(lo);
+        int i = lowerBound(leaf.keys, leaf.n, lo), count = 0;
+        while(leaf != null){
+            for(; i < leaf.n; i++){
+                if(leaf.keys[i] > hi) return count;
+                if(visitor != null) visitor.visit(leaf.keys[i], valAt(leaf, i));
+                count++;
+            }
+            leaf = leaf.next;
+            i = 0;
+        }
+        return count;
+    }
+
+    private static int lowerBound(long[] a, int n, long key){
+        // first index i w/ a[i] >= key
+        int lo = 0, hi = n;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+    private static int upperBound(long[] a, int n, long key){
+        // first index i w/ a[i] > key
+        int lo = 0, hi = n;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(a[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+    @SuppressWarnings("unchecked")
+    private V valAt(Leaf leaf, int i){
+        // vals[] only ever holds V's put in
+        return (V) leaf.vals[i];
+    }
+
+    public static void main( String [] args ){
+        final int NUMS = 1000000;
+        final int GAP  =   37;
+        System.out.println( "Checking... (no more output means success)" );
+        for( int order : new int[ ]{ 4, 5, 64 } ){
+            LongBPlusTree<String> t = new LongBPlusTree<>( order );
+            for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS ) t.put( i, ""+i );
+            for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+                if( t.put( i, ""+i ) == null ) System.out.println( "Put error! " + i );
+            for( int i = 1; i < NUMS; i+= 2 )
+                if( !(""+i).equals( t.remove( i ) ) ) System.out.println( "Remove error! " + i );
+            if( t.size( ) != NUMS / 2 - 1 ) System.out.println( "Size error! " + t.size( ) );
+            for( int i = 1; i < NUMS; i++ )
+                if( t.containsKey( i ) != ( i % 2 == 0 ) || ( i % 2 == 0 && !(""+i).equals( t.get( i ) ) ) )
+                    System.out.println( "Find error! " + i );
+            final long[ ] expect = { 100 };
+            int count = t.rangeScan( 99, 201, ( key, val ) -> {
+                if( key != expect[ 0 ] ) System.out.println( "Range error! " + key );
+                expect[ 0 ] += 2;
+            } );
+            if( count != 51 ) System.out.println( "Range size error! " + count );
+            for( int i = 2; i < NUMS; i+= 2 ) t.remove( i );
+            if( !t.isEmpty( ) || t.rangeScan( Long.MIN_VALUE, Long.MAX_VALUE, null ) != 0 )
+                System.out.println( "Remove all error!" );
+        }
+    }
+}
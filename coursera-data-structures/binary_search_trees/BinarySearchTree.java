@@ -13,7 +13,9 @@ import java.util.List;
  * Split(x, root)</br>
  * Merge(r1, r2)</br>
  * MergeWithRoot(r1, r2, Root)</br>
- * OrderStatistic(Root, k): extra field `sum`</br>
+ * OrderStatistic(Root, k): extra field `size`</br>
+ * Rank(Root, x): # keys <= x, by `size`</br>
+ * CountInRange(Root, x, y): # keys in [x, y], by `size`</br>
  * Splay(node)</br>
  * SplayFind(x)</br>
  * SplayInsert(x)</br>
@@ -31,18 +33,38 @@ public class BinarySearchTree<T extends Comparable<T>> {
         TreeNode<X> left, right;
         /* Declare parent field for Next() */
         TreeNode<X> parent;
+        /* # nodes in the subtree; update() after each change below it */
+        int size = 1;
         public TreeNode(X x) {
             key = x;
         }
     }
 
+    private int size(TreeNode<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /** Recompute size from the children and fix their parent links. */
+    private void update(TreeNode<T> node) {
+        if (node == null) return;
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) node.left.parent = node;
+        if (node.right != null) node.right.parent = node;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
     private TreeNode<T> root;
 
     public TreeNode<T> find(T x, TreeNode<T> root) {
         /** Find node with key in the tree or return null */
         if (root == null) return null;
-        if (root.key == x) return root;
-        else if (x.compareTo(root.key) < 0){
+        /**BZ: root.key == x compares references of boxed keys */
+        int cmp = x.compareTo(root.key);
+        if (cmp == 0) return root;
+        else if (cmp < 0){
             /* Missing key and stop before reaching a null pointer*/
             if (root.left != null) return find(x, root.left);
             else return root;
@@ -107,7 +129,7 @@ public class BinarySearchTree<T extends Comparable<T>> {
 
     public void insert(T x, TreeNode<T> root) {
         TreeNode<T> node = find(x, root);
-        if (node.key == x) return;
+        if (x.compareTo(node.key) == 0) return;
         // Add new node with key k as child of P
         TreeNode<T> newNode = new TreeNode<T>(x);
         /**BZ: MUST UPDATE PARENT LINKS AFTER INSERTION */
@@ -116,6 +138,8 @@ public class BinarySearchTree<T extends Comparable<T>> {
             node.left = newNode;
         else
             node.right = newNode;
+        // One more node in every subtree on the path to the root
+        for (; node != null; node = node.parent) node.size++;
     }
 
     public void insert(T x){
@@ -130,6 +154,8 @@ public class BinarySearchTree<T extends Comparable<T>> {
         // BZ: must update left/right subtree after recursion
         else if(cmp < 0) root.left = insert_helper(root.left, x);
         else root.right = insert_helper(root.right, x);
+        /**BZ: MUST UPDATE PARENT LINKS AND SIZE AFTER INSERTION */
+        update(root);
         return root;
     }
 
@@ -154,10 +180,11 @@ public class BinarySearchTree<T extends Comparable<T>> {
         if (cmp < 0)
             /**BZ: DELETE STH DOES NOT EXIST? */
             // return delete(x, node.left);
-            root.left = delete(x, root.left);
+            /**BZ: recurse on `node`, not the field `root` */
+            node.left = delete(x, node.left);
         else if (cmp > 0)
             // return delete(x, node.right);
-            root.right = delete(x, root.right);
+            node.right = delete(x, node.right);
         /**BZ: ELSE IF OR IF? */
         else if (node.left == null)
             return node.right;
@@ -173,9 +200,13 @@ public class BinarySearchTree<T extends Comparable<T>> {
             assert(next.left == null);
             node.key = next.key;  // Replace N by its next.
             // BZ: left-most might have right subtree
+            TreeNode<T> p = next.parent;
             promote(next.right, next);
+            // Shrink sizes from Next's old parent back up to N
+            for (; p != node; p = p.parent) update(p);
         }
-        return root;
+        update(node);
+        return node;
     }
 
     /**
@@ -211,15 +242,17 @@ public class BinarySearchTree<T extends Comparable<T>> {
         TreeNode<T>[] res = new TreeNode[2];
         if (root == null) return res;
         int cmp = x.compareTo(root.key);
+        /**BZ: x itself belongs to the <= x tree, not dropped */
         if (cmp == 0) {
-            res[0] = root.left;
             res[1] = root.right;
+            res[0] = mergeWithRoot(root.left, null, root);
         }
         // Recursively search left subtree (x is in left subtree).
         else if (cmp < 0) {
             res = split(root.left, x);
-            // After backtrack, merge R.Right with R2
-            res[1] = mergeWithRoot(root.right, res[1], root);
+            // After backtrack, merge R2 with R.Right
+            /**BZ: R2 < R < R.Right; R2 goes to the left */
+            res[1] = mergeWithRoot(res[1], root.right, root);
         }
         // Recursively search right subtree.
         else {
@@ -227,6 +260,9 @@ public class BinarySearchTree<T extends Comparable<T>> {
             // Merge left subtree with R2
             res[0] = mergeWithRoot(root.left, res[0], root);
         }
+        /**BZ: both results are roots now */
+        if (res[0] != null) res[0].parent = null;
+        if (res[1] != null) res[1].parent = null;
         return res;
     }
 
@@ -248,22 +284,126 @@ public class BinarySearchTree<T extends Comparable<T>> {
         TreeNode<T> root = t1;
         while (root.right != null) root = root.right;
         assert(root.right == null);
-        /**BZ: right-most might have left subtree */
-        promote(root.left, root);
-        mergeWithRoot(t1, t2, root);
-        return root;
+        if (root == t1) {
+            /**BZ: t1 itself is right-most; no parent to promote into */
+            t1 = root.left;
+        } else {
+            /**BZ: right-most might have left subtree */
+            TreeNode<T> p = root.parent;
+            promote(root.left, root);
+            // Shrink sizes on the path back up to t1
+            for (; p != null; p = p.parent) update(p);
+        }
+        return mergeWithRoot(t1, t2, root);
     }
 
     public TreeNode<T> mergeWithRoot(
             TreeNode<T> t1, TreeNode<T> t2, TreeNode<T> root) {
         root.left  = t1;
         root.right = t2;
-        t1.parent  = root;
-        t2.parent  = root;
+        /**BZ: t1 or t2 may be empty; update() links non-null children only */
+        root.parent = null;
+        update(root);
         return root;
     }
 
+    /**
+     * Key Idea: s = R.Left.size;</br>
+     * 1. k == s + 1: R is the k-th smallest;</br>
+     * 2. k &lt; s + 1: go left w/ the same k;</br>
+     * 3. k &gt; s + 1: go right w/ k - s - 1.
+     * @param root
+     * @param k 1-indexed
+     * @return The node with the k-th smallest key, or null if out of range.
+     */
     public TreeNode<T> orderStatistic(TreeNode<T> root, int k) {
+        if (k < 1 || k > size(root)) return null;
+        while (root != null) {
+            int s = size(root.left);
+            if (k == s + 1) return root;
+            else if (k < s + 1) root = root.left;
+            else {
+                k -= s + 1;
+                root = root.right;
+            }
+        }
         return null;
     }
+
+    public TreeNode<T> orderStatistic(int k) {
+        return orderStatistic(root, k);
+    }
+
+    /**
+     * Key Idea: add R.Left.size + 1 each time going right of R.
+     * @param root
+     * @param x
+     * @return # keys &lt;= x; orderStatistic(rank(x)) is x if x is in the tree.
+     */
+    public int rank(TreeNode<T> root, T x) {
+        return countBelow(root, x, true);
+    }
+
+    public int rank(T x) {
+        return rank(root, x);
+    }
+
+    /**
+     * Count directly from sizes, unlike rangeSearch(), which walks next().
+     * @param root
+     * @param x
+     * @param y
+     * @return # keys between x and y.
+     */
+    public int countInRange(TreeNode<T> root, T x, T y) {
+        if (x.compareTo(y) > 0) return 0;
+        return countBelow(root, y, true) - countBelow(root, x, false);
+    }
+
+    public int countInRange(T x, T y) {
+        return countInRange(root, x, y);
+    }
+
+    /** # keys &lt; x, or &lt;= x if inclusive; O(h). */
+    private int countBelow(TreeNode<T> root, T x, boolean inclusive) {
+        int count = 0;
+        while (root != null) {
+            int cmp = x.compareTo(root.key);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) root = root.left;
+            else {
+                count += size(root.left) + 1;
+                if (cmp == 0) break;
+                root = root.right;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) {
+        BinarySearchTree<Integer> t = new BinarySearchTree<>();
+        final int NUMS = 4000;
+        final int GAP  =   37;
+        System.out.println("Checking... (no more output means success)");
+        for (int i = GAP; i != 0; i = (i + GAP) % NUMS) t.insert(i);
+        for (int i = 1; i < NUMS; i += 2) t.delete(i);
+        if (t.size() != NUMS / 2 - 1) System.out.println("Size error! " + t.size());
+        for (int k = 1; k <= t.size(); k++)
+            if (t.orderStatistic(k).key != 2 * k) System.out.println("OrderStatistic error! " + k);
+        for (int i = 0; i < NUMS; i++)
+            if (t.rank(i) != i / 2) System.out.println("Rank error! " + i);
+        if (t.countInRange(99, 201) != 51 || t.countInRange(100, 200) != 51
+                || t.countInRange(201, 99) != 0)
+            System.out.println("CountInRange error!");
+        if (t.rangeSearch(t.root, 99, 201).size() != 51)
+            System.out.println("RangeSearch error!");
+
+        // split at x, then merge back
+        BinarySearchTree<Integer>.TreeNode<Integer>[] halves = t.split(t.root, 1000);
+        if (t.size(halves[0]) != 500 || t.size(halves[1]) != NUMS / 2 - 1 - 500)
+            System.out.println("Split error!");
+        if (t.orderStatistic(halves[1], 1).key != 1002) System.out.println("Split order error!");
+        t.root = t.merge(halves[0], halves[1]);
+        for (int k = 1; k <= t.size(); k++)
+            if (t.orderStatistic(k).key != 2 * k) System.out.println("Merge error! " + k);
+    }
 }
@@ -0,0 +1,293 @@
+package binary_search_trees;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel subtree aggregates and traversal orders over the
+ * key/left/right arrays of tree_orders (root 0, -1 for no child).
+ * <p>
+ * Pass 1, bottom-up: size, sum, height, min, max and BST validity of
+ * every subtree. Sizes are unknown before this pass, so a task forks at
+ * branching nodes (both children present) up to a fork depth, and walks
+ * single-child chains itself; below that it runs an iterative post-order.
+ * <p>
+ * Pass 2, top-down: with subtree sizes known, the position of v in each
+ * order is a prefix sum of sizes on the path from the root:</br>
+ * pre[v]  = P,                 left starts at P + 1, right at P + 1 + |L|</br>
+ * in[v]   = I + |L|,           left starts at I,     right at in[v] + 1</br>
+ * post[v] = Q + |v| - 1,       left starts at Q,     right at Q + |L|</br>
+ * so subtrees larger than a threshold are filled in parallel.
+ * <p>
+ * BST validity as in "Is it a binary search tree? (hard)": keys in the
+ * left subtree are strictly less, keys in the right subtree not less.
+ */
+public class ParallelTreeOrders {
+    /** Pass 2 forks only for subtrees bigger than this. */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    final int n;
+    final int[] key, left, right;
+    // pass 1
+    final int[] size, height, min, max;
+    final long[] sum;
+    final boolean[] bst;
+    // pass 2: position of each node and the keys in each order
+    final int[] preIndex, inIndex, postIndex;
+    final int[] preOrder, inOrder, postOrder;
+
+    private final ForkJoinPool pool;
+    private final int maxForkDepth;
+
+    public ParallelTreeOrders(int[] key, int[] left, int[] right, ForkJoinPool pool) {
+        this.n = key.length;
+        this.key = key;
+        this.left = left;
+        this.right = right;
+        this.pool = pool;
+        // ~64 tasks per worker on a balanced tree
+        this.maxForkDepth = 32 - Integer.numberOfLeadingZeros(pool.getParallelism() * 64);
+        size = new int[n];
+        height = new int[n];
+        min = new int[n];
+        max = new int[n];
+        sum = new long[n];
+        bst = new boolean[n];
+        preIndex = new int[n];
+        inIndex = new int[n];
+        postIndex = new int[n];
+        preOrder = new int[n];
+        inOrder = new int[n];
+        postOrder = new int[n];
+    }
+
+    /** Run both passes; afterwards all arrays above are filled. */
+    public ParallelTreeOrders compute() {
+        if (n == 0) return this;
+        pool.invoke(new Aggregate(0, 0));
+        pool.invoke(new Positions(0, 0, 0, 0));
+        return this;
+    }
+
+    public boolean isBinarySearchTree() {
+        return n == 0 || bst[0];
+    }
+
+    // -----pass 1-----
+
+    /** Node v from its (already combined) children. */
+    private void combine(int v) {
+        int l = left[v], r = right[v], k = key[v];
+        size[v] = 1;
+        height[v] = 1;
+        sum[v] = k;
+        min[v] = k;
+        max[v] = k;
+        bst[v] = true;
+        if (l != -1) {
+            size[v] += size[l];
+            height[v] = 1 + height[l];
+            sum[v] += sum[l];
+            min[v] = min[l];
+            bst[v] = bst[l] && max[l] < k;
+        }
+        if (r != -1) {
+            size[v] += size[r];
+            height[v] = Math.max(height[v], 1 + height[r]);
+            sum[v] += sum[r];
+            max[v] = max[r];
+            bst[v] = bst[v] && bst[r] && min[r] >= k;
+        }
+    }
+
+    /** Iterative post-order over the subtree of root, combining on the way up. */
+    private void aggregateSequential(int root) {
+        int[] stack = new int[16];
+        int top = 0, node = root, last = -1;
+        while (node != -1 || top > 0) {
+            if (node != -1) {
+                if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = node;
+                node = left[node];
+            } else {
+                int peek = stack[top - 1];
+                if (right[peek] != -1 && right[peek] != last) {
+                    node = right[peek];
+                } else {
+                    combine(peek);
+                    last = peek;
+                    top--;
+                }
+            }
+        }
+    }
+
+    private class Aggregate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int v, depth;
+        Aggregate(int v, int depth) {
+            this.v = v;
+            this.depth = depth;
+        }
+        @Override
+        protected void compute() {
+            // BZ: a path-shaped top must not be split per node; walk the
+            // single-child chain here and combine it after the branch below
+            int[] chain = new int[16];
+            int len = 0, u = v;
+            while ((left[u] == -1) != (right[u] == -1)) {
+                if (len == chain.length) chain = Arrays.copyOf(chain, len * 2);
+                chain[len++] = u;
+                u = left[u] != -1 ? left[u] : right[u];
+            }
+            if (left[u] != -1 && depth < maxForkDepth) {
+                invokeAll(new Aggregate(left[u], depth + 1), new Aggregate(right[u], depth + 1));
+                combine(u);
+            } else {
+                aggregateSequential(u);
+            }
+            for (int i = len - 1; i >= 0; i--) combine(chain[i]);
+        }
+    }
+
+    // -----pass 2-----
+
+    /** Place v (and children) given the start of its subtree in each order. */
+    private void place(int v, int pre, int in, int post) {
+        int inV = in + (left[v] == -1 ? 0 : size[left[v]]);
+        int postV = post + size[v] - 1;
+        preIndex[v] = pre;
+        inIndex[v] = inV;
+        postIndex[v] = postV;
+        preOrder[pre] = key[v];
+        inOrder[inV] = key[v];
+        postOrder[postV] = key[v];
+    }
+
+    private class Positions extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int v, pre, in, post;
+        private Positions next;  // forked siblings, joined in reverse
+        Positions(int v, int pre, int in, int post) {
+            this.v = v;
+            this.pre = pre;
+            this.in = in;
+            this.post = post;
+        }
+        @Override
+        protected void compute() {
+            // BZ: loop down the tree instead of recursing, forking the right
+            // child at each big node, so a long path cannot overflow the stack
+            Positions forked = null;
+            int v = this.v, pre = this.pre, in = this.in, post = this.post;
+            while (size[v] > SEQUENTIAL_THRESHOLD) {
+                place(v, pre, in, post);
+                int l = left[v], r = right[v];
+                int ls = l == -1 ? 0 : size[l];
+                if (l != -1 && r != -1) {
+                    Positions b = new Positions(r, pre + 1 + ls, in + ls + 1, post + ls);
+                    b.next = forked;
+                    forked = b;
+                    b.fork();
+                    v = l; pre = pre + 1;
+                } else if (l != -1) {
+                    v = l; pre = pre + 1;
+                } else {
+                    v = r; pre = pre + 1; in = in + 1;
+                }
+            }
+            positionsSequential(v, pre, in, post);
+            for (; forked != null; forked = forked.next) forked.join();
+        }
+    }
+
+    private void positionsSequential(int root, int pre0, int in0, int post0) {
+        // stack of (node, pre, in, post) frames
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = root;
+        stack[top++] = pre0;
+        stack[top++] = in0;
+        stack[top++] = post0;
+        while (top > 0) {
+            int post = stack[--top], in = stack[--top], pre = stack[--top], v = stack[--top];
+            place(v, pre, in, post);
+            int l = left[v], r = right[v];
+            int ls = l == -1 ? 0 : size[l];
+            if (top + 8 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            if (r != -1) {
+                stack[top++] = r;
+                stack[top++] = pre + 1 + ls;
+                stack[top++] = in + ls + 1;
+                stack[top++] = post + ls;
+            }
+            if (l != -1) {
+                stack[top++] = l;
+                stack[top++] = pre + 1;
+                stack[top++] = in;
+                stack[top++] = post;
+            }
+        }
+    }
+
+    /** Random tree on n nodes: attach node i under a random earlier node. */
+    private static void randomTree(int n, int[] key, int[] left, int[] right, Random rand, boolean bstKeys) {
+        Arrays.fill(left, -1);
+        Arrays.fill(right, -1);
+        for (int i = 1; i < n; i++) {
+            while (true) {
+                int p = rand.nextInt(i);
+                if (rand.nextBoolean() ? tryLink(left, p, i) : tryLink(right, p, i)) break;
+            }
+        }
+        for (int i = 0; i < n; i++) key[i] = rand.nextInt();
+        if (bstKeys) {
+            // relabel in-order w/ increasing keys
+            tree_orders.TreeOrders t = new tree_orders().new TreeOrders();
+            t.n = n; t.key = new int[n]; t.left = left; t.right = right;
+            for (int i = 0; i < n; i++) t.key[i] = i;
+            int[] next = {0};
+            t.inOrder(v -> key[v] = 2 * next[0]++);
+        }
+    }
+
+    private static boolean tryLink(int[] child, int p, int i) {
+        if (child[p] != -1) return false;
+        child[p] = i;
+        return true;
+    }
+
+    public static void main(String[] args) {
+        System.out.println("Checking... (no more output means success)");
+        Random rand = new Random(550);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int n : new int[]{1, 2, 10, 1000, 100000, 1000000}) {
+            for (boolean bstKeys : new boolean[]{false, true}) {
+                int[] key = new int[n], left = new int[n], right = new int[n];
+                randomTree(n, key, left, right, rand, bstKeys);
+                ParallelTreeOrders p = new ParallelTreeOrders(key, left, right, pool).compute();
+                tree_orders.TreeOrders t = new tree_orders().new TreeOrders();
+                t.n = n; t.key = key; t.left = left; t.right = right;
+                if (!Arrays.equals(p.inOrder, t.inOrder().stream().mapToInt(x -> x).toArray())
+                        || !Arrays.equals(p.preOrder, t.preOrder().stream().mapToInt(x -> x).toArray())
+                        || !Arrays.equals(p.postOrder, t.postOrder().stream().mapToInt(x -> x).toArray()))
+                    System.out.println("Order error! n=" + n);
+                long total = 0;
+                for (int k : key) total += k;
+                if (p.size[0] != n || p.sum[0] != total) System.out.println("Aggregate error! n=" + n);
+                if (n > 2 && p.isBinarySearchTree() != bstKeys) System.out.println("BST error! n=" + n);
+            }
+        }
+        // path-shaped tree: no recursion anywhere, so no stack overflow
+        int n = 1000000;
+        int[] key = new int[n], left = new int[n], right = new int[n];
+        for (int i = 0; i < n; i++) {
+            key[i] = n - i;
+            left[i] = i + 1 < n ? i + 1 : -1;
+            right[i] = -1;
+        }
+        ParallelTreeOrders p = new ParallelTreeOrders(key, left, right, pool).compute();
+        if (p.height[0] != n || !p.isBinarySearchTree() || p.inOrder[0] != 1) System.out.println("Path error!");
+    }
+}
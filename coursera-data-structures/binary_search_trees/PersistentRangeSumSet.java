@@ -0,0 +1,218 @@
+package binary_search_trees;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Persistent set of integers with range sums.
+ * <p>
+ * Same operations as SetRangeSum, but every update yields a new version
+ * and all old versions stay queryable:</br>
+ * add(i) / del(i): returns the new version number</br>
+ * find(v, i): is i in the set at version v</br>
+ * sum(v, l, r): sum of all elements in [l, r] at version v</br>
+ * size(v)</br>
+ * <p>
+ * Key Idea: path copying. Nodes are immutable; split/merge (as in Treap)
+ * copy only the nodes on the search path, so a version costs O(log n)
+ * new nodes and shares the rest with its parent version. Balanced as a
+ * treap whose priorities are a hash of the key, so no shared random state.
+ * <p>
+ * Thread safety: one writer at a time (add/del are synchronized); reads
+ * of published versions never lock, since nothing reachable from a
+ * published root is ever modified.
+ */
+public class PersistentRangeSumSet {
+
+    static final class Vertex {
+        final int key;
+        final int priority;
+        final Vertex left, right;
+        // Size and sum of all the keys in the subtree; fixed at construction.
+        final int size;
+        final long sum;
+
+        Vertex(int key, int priority, Vertex left, Vertex right) {
+            this.key = key;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+            this.sum = key + sum(left) + sum(right);
+        }
+
+        /** Copy of this vertex with new children. */
+        Vertex with(Vertex left, Vertex right) {
+            return new Vertex(key, priority, left, right);
+        }
+    }
+
+    /*
+     * versions[0..count) are published roots. BZ: write the slot before the
+     * volatile count, and read the count before the array, so a reader that
+     * sees count = c also sees versions[c - 1].
+     */
+    private volatile Vertex[] versions = new Vertex[16];
+    private volatile int count = 1;  // version 0: empty set
+
+    static int size(Vertex v) {
+        return v == null ? 0 : v.size;
+    }
+
+    static long sum(Vertex v) {
+        return v == null ? 0 : v.sum;
+    }
+
+    private static int priority(int key) {
+        // murmur3 finalizer; a fixed priority per key keeps the shape
+        // independent of the order of updates
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /** @return The latest version number. */
+    public int latest() {
+        return count - 1;
+    }
+
+    private Vertex root(int version) {
+        int c = count;
+        if (version < 0 || version >= c) throw new IndexOutOfBoundsException("version " + version);
+        return versions[version];
+    }
+
+    private synchronized int publish(Vertex root) {
+        int c = count;
+        if (c == versions.length) versions = java.util.Arrays.copyOf(versions, c * 2);
+        versions[c] = root;
+        count = c + 1;
+        return c;
+    }
+
+    public synchronized int add(int x) {
+        Vertex root = versions[count - 1];
+        if (find(root, x)) return publish(root);
+        Vertex[] lr = split(root, x, false);
+        Vertex single = new Vertex(x, priority(x), null, null);
+        return publish(merge(merge(lr[0], single), lr[1]));
+    }
+
+    public synchronized int del(int x) {
+        Vertex root = versions[count - 1];
+        if (!find(root, x)) return publish(root);
+        Vertex[] lr = split(root, x, false);       // < x, >= x
+        Vertex[] mr = split(lr[1], x, true);       // == x, > x
+        return publish(merge(lr[0], mr[1]));
+    }
+
+    public boolean find(int version, int x) {
+        return find(root(version), x);
+    }
+
+    public int size(int version) {
+        return size(root(version));
+    }
+
+    /** Sum of keys in [l, r] at the given version; O(log n), no copying. */
+    public long sum(int version, int l, int r) {
+        if (l > r) return 0;
+        Vertex root = root(version);
+        return sumBelow(root, r, true) - sumBelow(root, l, false);
+    }
+
+    private static boolean find(Vertex v, int x) {
+        while (v != null) {
+            if (x == v.key) return true;
+            v = x < v.key ? v.left : v.right;
+        }
+        return false;
+    }
+
+    /** Sum of keys &lt; x, or &lt;= x if inclusive. */
+    private static long sumBelow(Vertex v, int x, boolean inclusive) {
+        long s = 0;
+        while (v != null) {
+            if (x < v.key || (x == v.key && !inclusive)) v = v.left;
+            else {
+                s += sum(v.left) + v.key;
+                if (x == v.key) break;
+                v = v.right;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Persistent split: copies the vertices on the search path only.
+     * @return {keys &lt; x (or &lt;= x if inclusive), the rest}
+     */
+    static Vertex[] split(Vertex v, int x, boolean inclusive) {
+        Vertex[] res = new Vertex[2];
+        if (v == null) return res;
+        boolean goesLeft = v.key < x || (inclusive && v.key == x);
+        if (goesLeft) {
+            Vertex[] sub = split(v.right, x, inclusive);
+            res[0] = v.with(v.left, sub[0]);
+            res[1] = sub[1];
+        } else {
+            Vertex[] sub = split(v.left, x, inclusive);
+            res[0] = sub[0];
+            res[1] = v.with(sub[1], v.right);
+        }
+        return res;
+    }
+
+    /** Persistent merge; all keys of a less than all keys of b. */
+    static Vertex merge(Vertex a, Vertex b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) return a.with(a.left, merge(a.right, b));
+        return b.with(merge(a, b.left), b.right);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int OPS = 200000, RANGE = 50000;
+        System.out.println("Checking... (no more output means success)");
+        PersistentRangeSumSet set = new PersistentRangeSumSet();
+        Random rand = new Random(550);
+        // reference: sum of [0, RANGE/2] and size, every 1000 versions
+        long[] halfSum = new long[OPS + 1];
+        int[] sizes = new int[OPS + 1];
+        TreeSet<Integer> ref = new TreeSet<>();
+        for (int i = 1; i <= OPS; i++) {
+            int x = rand.nextInt(RANGE);
+            boolean add = rand.nextInt(3) > 0;
+            int v = add ? set.add(x) : set.del(x);
+            if (v != i) System.out.println("Version error! " + v);
+            if (add) ref.add(x);
+            else ref.remove(x);
+            if (i % 1000 == 0) {
+                for (int k : ref.headSet(RANGE / 2, true)) halfSum[i] += k;
+                sizes[i] = ref.size();
+            }
+        }
+        for (int i = 1000; i <= OPS; i += 1000)
+            if (set.sum(i, 0, RANGE / 2) != halfSum[i] || set.size(i) != sizes[i])
+                System.out.println("Version " + i + " error!");
+
+        // readers on old versions while the writer keeps adding
+        final long expect = set.sum(OPS / 2, 0, RANGE);
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                for (int k = 0; k < 20000; k++) {
+                    if (set.sum(OPS / 2, 0, RANGE) != expect) System.out.println("Snapshot error!");
+                    set.sum(set.latest(), 0, RANGE);
+                }
+            });
+            readers[t].start();
+        }
+        for (int i = 0; i < OPS; i++) set.add(RANGE + i);
+        for (Thread t : readers) t.join();
+        if (set.size(set.latest()) != set.size(OPS) + OPS) System.out.println("Writer error!");
+    }
+}
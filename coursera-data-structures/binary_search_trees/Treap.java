@@ -0,0 +1,389 @@
+package binary_search_trees;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Treap: BST on keys + max-heap on random priorities.
+ * <p>
+ * Same split/merge engine as BinarySearchTree, but the random priorities
+ * keep the expected height O(log n) on any input order.</br>
+ * Find(x)</br>
+ * Insert(x)</br>
+ * Delete(x)</br>
+ * Split(x): this keeps keys ≤ x, returns keys &gt; x</br>
+ * Merge(t): append t, all of whose keys are &gt; this</br>
+ * OrderStatistic(k), Rank(x): extra field `size`</br>
+ * Union(t), Difference(t): join-based, subtrees on a ForkJoinPool</br>
+ * <p>
+ * Split/merge/insert/delete are iterative; union/difference recurse
+ * O(log n) deep in expectation.
+ *
+ * @param <T>
+ */
+public class Treap<T extends Comparable<T>> {
+    /** Fork only when both inputs together are bigger than this. */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    static class TreeNode<X> {
+        X key;
+        final int priority;
+        TreeNode<X> left, right;
+        /* # nodes in the subtree */
+        int size = 1;
+        TreeNode(X x, int priority) {
+            this.key = x;
+            this.priority = priority;
+        }
+    }
+
+    private TreeNode<T> root;
+    private final Random rand;
+    private final ForkJoinPool pool;
+
+    public Treap() {
+        this(new Random(), ForkJoinPool.commonPool());
+    }
+
+    public Treap(Random rand, ForkJoinPool pool) {
+        this.rand = rand;
+        this.pool = pool;
+    }
+
+    private static <T> int size(TreeNode<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T> void update(TreeNode<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean find(T x) {
+        TreeNode<T> node = root;
+        while (node != null) {
+            int cmp = x.compareTo(node.key);
+            if (cmp == 0) return true;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Key Idea:</br>
+     * Walk down while the path has higher priority than the new node;
+     * split the subtree found there at x and hang both halves under it.
+     * @param x
+     */
+    public void insert(T x) {
+        if (find(x)) return;
+        TreeNode<T> newNode = new TreeNode<T>(x, rand.nextInt());
+        TreeNode<T> parent = null, node = root;
+        boolean isLeft = false;
+        while (node != null && node.priority > newNode.priority) {
+            node.size++;  // it gains newNode below
+            parent = node;
+            isLeft = x.compareTo(node.key) < 0;
+            node = isLeft ? node.left : node.right;
+        }
+        TreeNode<T>[] res = split(node, x, false);
+        newNode.left = res[0];
+        newNode.right = res[1];
+        update(newNode);
+        link(parent, isLeft, newNode);
+    }
+
+    /**
+     * Key Idea:</br>
+     * Replace the node by the merge of its two subtrees.
+     * @param x
+     */
+    public void delete(T x) {
+        if (!find(x)) return;
+        TreeNode<T> parent = null, node = root;
+        boolean isLeft = false;
+        while (true) {
+            int cmp = x.compareTo(node.key);
+            if (cmp == 0) break;
+            node.size--;  // it loses x below
+            parent = node;
+            isLeft = cmp < 0;
+            node = isLeft ? node.left : node.right;
+        }
+        link(parent, isLeft, merge(node.left, node.right));
+    }
+
+    /**
+     * Hang `child` under `parent` (or at the root).
+     * BZ: pass the side; parent.left == old fails when old is null
+     */
+    private void link(TreeNode<T> parent, boolean isLeft, TreeNode<T> child) {
+        if (parent == null) root = child;
+        else if (isLeft) parent.left = child;
+        else parent.right = child;
+    }
+
+    public Treap<T> split(T x) {
+        TreeNode<T>[] res = split(root, x, false);
+        root = res[0];
+        Treap<T> greater = new Treap<T>(rand, pool);
+        greater.root = res[1];
+        return greater;
+    }
+
+    /** BZ: all keys of t must be greater than the keys here; t is emptied. */
+    public void merge(Treap<T> t) {
+        root = merge(root, t.root);
+        t.root = null;
+    }
+
+    /**
+     * Key Idea:</br>
+     * Walk down from the root; every node goes to the left (≤ x) or right
+     * (&gt; x) result, hung on the hook of that side: the right-most open
+     * slot on the left result, the left-most on the right result.
+     * <p>
+     * BZ: sizes change on the whole path; fix them bottom-up afterwards.
+     *
+     * @param root
+     * @param x
+     * @param dropEqual if true, x goes to neither side
+     * @return {keys ≤ x (or &lt; x), keys &gt; x, the node of x if dropped}
+     */
+    static <T extends Comparable<T>> TreeNode<T>[] split(TreeNode<T> root, T x, boolean dropEqual) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        TreeNode<T>[] res = new TreeNode[3];
+        TreeNode<T> leftHead = new TreeNode<T>(null, 0), rightHead = new TreeNode<T>(null, 0);
+        TreeNode<T> l = leftHead, r = rightHead;
+        List<TreeNode<T>> path = new ArrayList<>();
+        TreeNode<T> node = root;
+        while (node != null) {
+            int cmp = x.compareTo(node.key);
+            if (cmp == 0 && dropEqual) {
+                l.right = node.left;
+                r.left = node.right;
+                node.left = node.right = null;
+                node.size = 1;
+                res[2] = node;
+                break;
+            }
+            path.add(node);
+            if (cmp >= 0) {
+                // node.key ≤ x: node and its left subtree go left
+                l.right = node;
+                l = node;
+                node = node.right;
+            } else {
+                r.left = node;
+                r = node;
+                node = node.left;
+            }
+        }
+        if (res[2] == null) {
+            l.right = null;
+            r.left = null;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) update(path.get(i));
+        res[0] = leftHead.right;
+        res[1] = rightHead.left;
+        return res;
+    }
+
+    /**
+     * Key Idea:</br>
+     * Higher priority of the two roots becomes the root; keep merging
+     * into its inner side (a.right or b.left).
+     *
+     * @param a
+     * @param b all keys greater than in a
+     * @return
+     */
+    static <T> TreeNode<T> merge(TreeNode<T> a, TreeNode<T> b) {
+        TreeNode<T> head = new TreeNode<T>(null, 0);
+        TreeNode<T> hook = head;
+        boolean hookLeft = true;
+        List<TreeNode<T>> path = new ArrayList<>();
+        while (a != null && b != null) {
+            TreeNode<T> top = a.priority > b.priority ? a : b;
+            if (hookLeft) hook.left = top;
+            else hook.right = top;
+            path.add(top);
+            hook = top;
+            if (top == a) {
+                hookLeft = false;
+                a = a.right;
+            } else {
+                hookLeft = true;
+                b = b.left;
+            }
+        }
+        TreeNode<T> rest = a != null ? a : b;
+        if (hookLeft) hook.left = rest;
+        else hook.right = rest;
+        for (int i = path.size() - 1; i >= 0; i--) update(path.get(i));
+        return head.left;
+    }
+
+    /** @return The k-th smallest key, 1-indexed, or null if out of range. */
+    public T orderStatistic(int k) {
+        if (k < 1 || k > size()) return null;
+        TreeNode<T> node = root;
+        while (true) {
+            int s = size(node.left);
+            if (k == s + 1) return node.key;
+            else if (k < s + 1) node = node.left;
+            else {
+                k -= s + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /** @return # keys ≤ x. */
+    public int rank(T x) {
+        int count = 0;
+        TreeNode<T> node = root;
+        while (node != null) {
+            int cmp = x.compareTo(node.key);
+            if (cmp < 0) node = node.left;
+            else {
+                count += size(node.left) + 1;
+                if (cmp == 0) break;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    public int height() {
+        return height(root);
+    }
+
+    private static <T> int height(TreeNode<T> node) {
+        return node == null ? 0 : 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    /** Add all keys of t; t is emptied (its nodes are reused). */
+    public void union(Treap<T> t) {
+        root = pool.invoke(new Union<T>(root, t.root));
+        t.root = null;
+    }
+
+    /** Remove all keys of t; t is only read. */
+    public void difference(Treap<T> t) {
+        root = pool.invoke(new Difference<T>(root, t.root));
+    }
+
+    /**
+     * Key Idea:</br>
+     * Root of higher priority stays root; split the other treap at its key
+     * and union the two sides independently (in parallel).
+     */
+    private static class Union<T extends Comparable<T>> extends RecursiveTask<TreeNode<T>> {
+        private static final long serialVersionUID = 1L;
+        private TreeNode<T> t1, t2;
+        Union(TreeNode<T> t1, TreeNode<T> t2) {
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+        @Override
+        protected TreeNode<T> compute() {
+            if (t1 == null) return t2;
+            if (t2 == null) return t1;
+            if (t1.priority < t2.priority) {
+                TreeNode<T> tmp = t1; t1 = t2; t2 = tmp;
+            }
+            boolean parallel = size(t1) + size(t2) > PARALLEL_THRESHOLD;
+            /**BZ: drop t2's copy of t1.key, o.w. the key appears twice */
+            TreeNode<T>[] res = split(t2, t1.key, true);
+            Union<T> left = new Union<T>(t1.left, res[0]);
+            Union<T> right = new Union<T>(t1.right, res[1]);
+            if (parallel) {
+                left.fork();
+                t1.right = right.compute();
+                t1.left = left.join();
+            } else {
+                t1.left = left.compute();
+                t1.right = right.compute();
+            }
+            update(t1);
+            return t1;
+        }
+    }
+
+    /**
+     * Key Idea:</br>
+     * Split t1 at t2's root key (dropping it), remove t2's left/right
+     * subtrees from the two sides independently, then merge the sides.
+     */
+    private static class Difference<T extends Comparable<T>> extends RecursiveTask<TreeNode<T>> {
+        private static final long serialVersionUID = 1L;
+        private final TreeNode<T> t1, t2;
+        Difference(TreeNode<T> t1, TreeNode<T> t2) {
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+        @Override
+        protected TreeNode<T> compute() {
+            if (t1 == null || t2 == null) return t1;
+            boolean parallel = size(t1) + size(t2) > PARALLEL_THRESHOLD;
+            TreeNode<T>[] res = split(t1, t2.key, true);
+            Difference<T> left = new Difference<T>(res[0], t2.left);
+            Difference<T> right = new Difference<T>(res[1], t2.right);
+            TreeNode<T> l, r;
+            if (parallel) {
+                left.fork();
+                r = right.compute();
+                l = left.join();
+            } else {
+                l = left.compute();
+                r = right.compute();
+            }
+            return merge(l, r);
+        }
+    }
+
+    public static void main(String[] args) {
+        final int NUMS = 1000000;
+        System.out.println("Checking... (no more output means success)");
+        Treap<Integer> t = new Treap<>(new Random(550), ForkJoinPool.commonPool());
+        // sorted input: an unbalanced BST would be a linked list
+        for (int i = 0; i < NUMS; i++) t.insert(i);
+        if (t.height() > 4 * (int) (Math.log(NUMS) / Math.log(2)))
+            System.out.println("Height error! " + t.height());
+        for (int i = 1; i < NUMS; i += 2) t.delete(i);
+        if (t.size() != NUMS / 2) System.out.println("Size error! " + t.size());
+        for (int k = 1; k <= t.size(); k += 997)
+            if (t.orderStatistic(k) != 2 * (k - 1)) System.out.println("OrderStatistic error! " + k);
+        for (int i = 0; i < NUMS; i += 991)
+            if (t.rank(i) != i / 2 + 1 || t.find(i) != (i % 2 == 0)) System.out.println("Rank error! " + i);
+
+        // split then merge back
+        Treap<Integer> greater = t.split(NUMS / 2);
+        if (t.size() != NUMS / 4 + 1 || greater.orderStatistic(1) != NUMS / 2 + 2)
+            System.out.println("Split error!");
+        t.merge(greater);
+        if (t.size() != NUMS / 2 || greater.size() != 0) System.out.println("Merge error!");
+
+        // evens ∪ multiples of 3, then minus multiples of 3
+        Treap<Integer> threes = new Treap<>(new Random(410), ForkJoinPool.commonPool());
+        Treap<Integer> threesCopy = new Treap<>(new Random(411), ForkJoinPool.commonPool());
+        for (int i = 0; i < NUMS; i += 3) {
+            threes.insert(i);
+            threesCopy.insert(i);
+        }
+        t.union(threes);
+        int expect = 0;
+        for (int i = 0; i < NUMS; i++) if (i % 2 == 0 || i % 3 == 0) expect++;
+        if (t.size() != expect || !t.find(3) || !t.find(4) || t.find(5)) System.out.println("Union error!");
+        t.difference(threesCopy);
+        for (int i = 0; i < NUMS; i += 97)
+            if (t.find(i) != (i % 2 == 0 && i % 3 != 0)) System.out.println("Difference error! " + i);
+        if (t.rank(NUMS) != t.size()) System.out.println("Size after difference error!");
+    }
+}
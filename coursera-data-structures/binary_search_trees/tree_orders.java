@@ -3,10 +3,12 @@ package binary_search_trees;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 import java.util.StringTokenizer;
+import java.util.function.IntConsumer;
 
 /**
  * Binary tree traversals.
@@ -51,34 +53,44 @@ public class tree_orders {
             }
         }
 
+        /** Shared int stack for the traversals; a path can be n deep. */
+        private int[] stack;
+
+        private int[] stack() {
+            if (stack == null || stack.length < n) stack = new int[n];
+            return stack;
+        }
+
         /**
          * Key Idea:
          * Start at root vertex 0.
          * Push all nodes `along the path` from root to left-most into stack.
          * While stack is not empty, print top.
          * Push all nodes along the path from its right-subtree to left-most.
+         * <p>
+         * BZ: int[] stack instead of Stack&lt;Integer&gt;: no boxing, no locking.
          *
-         * @return
+         * @param sink receives the keys in order
          */
-        List<Integer> inOrder() {
-            ArrayList<Integer> result = new ArrayList<Integer>();
-            Stack<Integer> stack = new Stack<>();
+        void inOrder(IntConsumer sink) {
+            if (n == 0) return;
+            int[] stack = stack();
             // Refactor out the common code
-            pushAll(stack, 0);
-            while (! stack.isEmpty()) {
-                int top = stack.pop();
-                result.add(key[top]);
-                top = right[top];  // Move pointer to right subtree
-                pushAll(stack, top);
+            int top = pushAll(stack, 0, 0);
+            while (top > 0) {
+                int node = stack[--top];
+                sink.accept(key[node]);
+                // Move pointer to right subtree
+                top = pushAll(stack, top, right[node]);
             }
-            return result;
         }
         /** Push all nodes on the path root->left-most into stack */
-        private void pushAll(Stack<Integer> stack, int root) {
+        private int pushAll(int[] stack, int top, int root) {
             while (root != -1) {
-                stack.push(root);
+                stack[top++] = root;
                 root = left[root];
             }
+            return top;
         }
 
         /**
@@ -87,44 +99,134 @@ public class tree_orders {
          * While stack is not empty, pop & print top.
          * Push its non-null right, left child into stack.
          *
-         * @return
+         * @param sink receives the keys in order
          */
-        List<Integer> preOrder() {
-            List<Integer> result = new ArrayList<Integer>();
-            Stack<Integer> stack = new Stack<>();
-            stack.push(0);
-            while (! stack.isEmpty()) {
-                int top = stack.pop();
-                result.add(key[top]);
-                if (right[top] != -1) stack.push(right[top]);
-                if (left[top]  != -1) stack.push(left[top]);
+        void preOrder(IntConsumer sink) {
+            if (n == 0) return;
+            int[] stack = stack();
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                sink.accept(key[node]);
+                if (right[node] != -1) stack[top++] = right[node];
+                if (left[node]  != -1) stack[top++] = left[node];
             }
-            return result;
         }
 
         /**
-         * Key Idea: add sentinel? Still PreOrder</br>
-         * Given an output of postOrder, what is from right to left?
-         * <pre> Still PreOrder, but right side first.. </pre>
-         * Push root and while stack is not empty, pop top.
-         * Insert top at the head (reverse-order).
-         * Push its non-null left, right child into stack.
+         * Key Idea: walk down left like InOrder; at the top of stack, go
+         * into its right subtree first unless we just came back from it;
+         * o.w. print and pop.</br>
+         * BZ: reversed PreOrder w/ result.add(0, x) is O(n^2) on a list.
          *
-         * @return
+         * @param sink receives the keys in order
          */
-        List<Integer> postOrder() {
-            ArrayList<Integer> result = new ArrayList<Integer>();
-            Stack<Integer> stack = new Stack<>();
-            stack.push(0);
-            while (! stack.isEmpty()) {
-                int top = stack.pop();
-                result.add(0, key[top]);
-                // BZ: add top's children, instead of root
-                if (left[top]  != -1) stack.push(left[top]);
-                if (right[top] != -1) stack.push(right[top]);
+        void postOrder(IntConsumer sink) {
+            if (n == 0) return;
+            int[] stack = stack();
+            int top = 0, node = 0, last = -1;
+            while (node != -1 || top > 0) {
+                if (node != -1) {
+                    stack[top++] = node;
+                    node = left[node];
+                } else {
+                    int peek = stack[top - 1];
+                    // BZ: right subtree done iff it is the node printed last
+                    if (right[peek] != -1 && right[peek] != last) {
+                        node = right[peek];
+                    } else {
+                        sink.accept(key[peek]);
+                        last = peek;
+                        top--;
+                    }
+                }
             }
+        }
+
+        List<Integer> inOrder() {
+            List<Integer> result = new ArrayList<Integer>(n);
+            inOrder(result::add);
+            return result;
+        }
+
+        List<Integer> preOrder() {
+            List<Integer> result = new ArrayList<Integer>(n);
+            preOrder(result::add);
             return result;
         }
+
+        List<Integer> postOrder() {
+            List<Integer> result = new ArrayList<Integer>(n);
+            postOrder(result::add);
+            return result;
+        }
+    }
+
+    /** Buffered output of ints separated by spaces; no String per key. */
+    static class IntWriter implements IntConsumer {
+        private final OutputStream out;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+
+        IntWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(int x) {
+            // room for "-2147483648 "
+            if (pos + 12 > buf.length) flushBuffer();
+            if (x < 0) {
+                buf[pos++] = '-';
+                // BZ: -Integer.MIN_VALUE overflows; print its last digit first
+                if (x == Integer.MIN_VALUE) {
+                    writeDigits(-(x / 10));
+                    x = -(x % 10);
+                    buf[pos++] = (byte) ('0' + x);
+                    buf[pos++] = ' ';
+                    return;
+                }
+                x = -x;
+            }
+            writeDigits(x);
+            buf[pos++] = ' ';
+        }
+
+        private void writeDigits(int x) {
+            int start = pos;
+            do {
+                buf[pos++] = (byte) ('0' + x % 10);
+                x /= 10;
+            } while (x > 0);
+            // digits went in backwards
+            for (int i = start, j = pos - 1; i < j; i++, j--) {
+                byte tmp = buf[i]; buf[i] = buf[j]; buf[j] = tmp;
+            }
+        }
+
+        void newLine() {
+            if (pos + 1 > buf.length) flushBuffer();
+            buf[pos++] = '\n';
+        }
+
+        private void flushBuffer() {
+            try {
+                out.write(buf, 0, pos);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos = 0;
+        }
+
+        void flush() {
+            flushBuffer();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
     static public void main(String[] args) throws IOException {
@@ -138,18 +240,17 @@ public class tree_orders {
         }, "1", 1 << 26).start();
     }
 
-    public void print(List<Integer> x) {
-        for (Integer a : x) {
-            System.out.print(a + " ");
-        }
-        System.out.println();
-    }
-
     public void run() throws IOException {
         TreeOrders tree = new TreeOrders();
         tree.read();
-        print(tree.inOrder());
-        print(tree.preOrder());
-        print(tree.postOrder());
+        // Stream keys straight into one buffered writer
+        IntWriter out = new IntWriter(System.out);
+        tree.inOrder(out);
+        out.newLine();
+        tree.preOrder(out);
+        out.newLine();
+        tree.postOrder(out);
+        out.newLine();
+        out.flush();
     }
 }
@@ -0,0 +1,64 @@
+package list_stack_tree;
+
+/**
+ * The packet buffer of process_packages; PacketSimulator checks its
+ * one-processor, drop-tail case against this.
+ */
+class Buffer {
+    public Buffer(int size) {
+        this.size_ = size;
+        this.finish_time_ = new long[Math.max(size, 1)];
+    }
+
+    /**
+     * Key Idea:
+     * When each process i comes, decide:
+     *     if it will be dropped or not?
+     *     if enqueued, what is its start/finish time?
+     * Pop all packets in buffer that have already finished;
+     * If buffer is full, drop i and output -1;
+     * Determine the start_time by queue:
+     *     if queue is empty, process i as it arrives;
+     *     else, enqueue i after last finish_time;
+     *     (i.e. should wait in queue if not idle)
+     * <p>
+     * The buffer never holds more than S finish times, so it is a ring
+     * of S longs: pop at head_, push at (head_ + count_) mod S, O(1) each.
+     *
+     * @return start time of the packet, or -1 if dropped
+     */
+    public long process(long arrival_time, int process_time) {
+        // Free buffer only when the process finished
+        while (count_ > 0 && finish_time_[head_] <= arrival_time) {
+            // BZ: the process finishes at i's arrival? -> finished
+            //     example: S=1, n=2, A=[0,0],P=[0,1|0]
+            // 1st request finishes at 0 but 2nd also comes at 0...
+            if (++head_ == finish_time_.length) head_ = 0;
+            count_--;
+            /* @Note:
+             * This finally popped request has nothing to do
+             * with the current new request i; i either waits
+             * in queue or gets processed if idle. */
+        }
+        // If still full, just drop it;
+        if (count_ == size_) {
+            return -1;
+        }
+        // Compute start_time and enqueue finish_time.
+        // If no buffer waiting, i.e. idle, start instantly;
+        // else wait at the end...
+        // BZ: start_time is `at least arrival time`...
+        int tail = head_ + count_;
+        if (tail >= finish_time_.length) tail -= finish_time_.length;
+        long current_start_time = count_ == 0 ? arrival_time :
+            finish_time_[tail == 0 ? finish_time_.length - 1 : tail - 1];
+        finish_time_[tail] = current_start_time + process_time;
+        count_++;
+        return current_start_time;
+    }
+
+    private int size_;
+    // ring of finish times; oldest at head_
+    private long[] finish_time_;
+    private int head_, count_;
+}
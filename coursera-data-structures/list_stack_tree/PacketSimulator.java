@@ -0,0 +1,371 @@
+package list_stack_tree;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Network packet processing simulation, extended.
+ * <p>
+ * process_packages with k processors sharing one buffer of S packets
+ * (waiting or in service, as there), per-flow FIFO queues, a scheduler
+ * choosing which flow a free processor serves next, and a drop policy:</br>
+ * RR: round robin over non-empty flows.</br>
+ * WFQ: self-clocked fair queueing; tag = max(V, last tag of the flow)
+ * + duration / weight, serve the smallest head tag, V = tag in service.</br>
+ * DROP_TAIL: drop only when the buffer is full.</br>
+ * RED: also drop early with probability rising from 0 at minTh to maxP
+ * at maxTh of an EWMA of the waiting queue length; always past maxTh.
+ * The buffer is shared, so under overload admission (FIFO by arrival)
+ * decides each flow's share; the scheduler decides order and latency.
+ * <p>
+ * Key Idea: arrivals come in time order already, so the only events to
+ * order are departures; they live in a min-heap of the k finish times.
+ * Before each arrival at t, pop every departure at &lt;= t (the BZ in
+ * Buffer.Process: finishing at t frees the slot for t) and hand the freed
+ * processor the next waiting packet at that departure time.
+ * <p>
+ * With k = 1, one flow and DROP_TAIL the start times equal Buffer's.
+ */
+public class PacketSimulator {
+    public enum Scheduler { RR, WFQ }
+
+    /** Told about every packet; ids are arrival order from 0. */
+    public interface Listener {
+        void started(long id, int flow, long start_time);
+        void dropped(long id, int flow);
+    }
+
+    /** Growable ring of waiting packets of one flow. */
+    private static class FlowQueue {
+        long[] id = new long[16], arrival = new long[16];
+        int[] duration = new int[16];
+        double[] tag = new double[16];
+        int head, count;
+
+        void add(long pid, long arrival_time, int process_time, double t) {
+            if (count == id.length) grow();
+            int i = (head + count) & (id.length - 1);
+            id[i] = pid;
+            arrival[i] = arrival_time;
+            duration[i] = process_time;
+            tag[i] = t;
+            count++;
+        }
+
+        /** Ring index of the head; caller then calls poll(). */
+        int peek() {
+            return head;
+        }
+
+        void poll() {
+            head = (head + 1) & (id.length - 1);
+            count--;
+        }
+
+        private void grow() {
+            // BZ: unroll the ring so head is at 0 before doubling
+            int cap = id.length * 2;
+            long[] nid = new long[cap], narr = new long[cap];
+            int[] ndur = new int[cap];
+            double[] ntag = new double[cap];
+            for (int k = 0; k < count; k++) {
+                int j = (head + k) & (id.length - 1);
+                nid[k] = id[j];
+                narr[k] = arrival[j];
+                ndur[k] = duration[j];
+                ntag[k] = tag[j];
+            }
+            id = nid; arrival = narr; duration = ndur; tag = ntag;
+            head = 0;
+        }
+    }
+
+    private final int processors, size;
+    private final Scheduler scheduler;
+    private final double[] weight;
+    private final FlowQueue[] queues;
+    private final Listener listener;
+
+    // RED, off when maxTh == 0
+    private double minTh, maxTh, maxP, wq, avg;
+    private final Random random;
+
+    // state
+    private final long[] finish;  // min-heap of busy processors' finish times
+    private int busy, waiting, rrCursor;
+    private double virtualTime;
+    private final double[] lastTag;
+    private long nextId, lastArrival = Long.MIN_VALUE;
+
+    // stats
+    private long accepted, dropped, firstArrival = -1, lastFinish;
+    private final long[] flowDropped, flowServed;
+    private long[] latency = new long[1024];
+    // latency[0 .. sortedLatencies) is sorted; percentiles sort only when stale
+    private int latencies, sortedLatencies;
+
+    /**
+     * @param weights one per flow; RR ignores them
+     */
+    public PacketSimulator(int processors, int size, Scheduler scheduler,
+                           double[] weights, long seed, Listener listener) {
+        if (processors < 1) throw new IllegalArgumentException("processors " + processors);
+        this.processors = processors;
+        this.size = size;
+        this.scheduler = scheduler;
+        this.weight = weights.clone();
+        this.listener = listener;
+        this.random = new Random(seed);
+        this.queues = new FlowQueue[weights.length];
+        for (int f = 0; f < queues.length; f++) {
+            if (!(weights[f] > 0)) throw new IllegalArgumentException("weight " + weights[f]);
+            queues[f] = new FlowQueue();
+        }
+        this.lastTag = new double[weights.length];
+        this.flowDropped = new long[weights.length];
+        this.flowServed = new long[weights.length];
+        this.finish = new long[processors];
+    }
+
+    /** Switch DROP_TAIL to RED; thresholds are in waiting packets. */
+    public PacketSimulator red(double minTh, double maxTh, double maxP, double wq) {
+        if (!(0 <= minTh && minTh < maxTh && maxP >= 0 && maxP <= 1 && wq > 0 && wq <= 1))
+            throw new IllegalArgumentException("RED parameters");
+        this.minTh = minTh;
+        this.maxTh = maxTh;
+        this.maxP = maxP;
+        this.wq = wq;
+        return this;
+    }
+
+    /** Next packet; arrival times must not decrease. */
+    public void offer(long arrival_time, int process_time, int flow) {
+        if (arrival_time < lastArrival) throw new IllegalArgumentException("arrival " + arrival_time + " before " + lastArrival);
+        lastArrival = arrival_time;
+        if (firstArrival == -1) firstArrival = arrival_time;
+        advance(arrival_time);
+        long pid = nextId++;
+        if (drop()) {
+            dropped++;
+            flowDropped[flow]++;
+            if (listener != null) listener.dropped(pid, flow);
+            return;
+        }
+        accepted++;
+        double tag = Math.max(virtualTime, lastTag[flow]) + process_time / weight[flow];
+        lastTag[flow] = tag;
+        if (busy < processors) {
+            // BZ: idle processor means nothing waits; start right away
+            virtualTime = tag;
+            start(pid, flow, arrival_time, process_time, arrival_time);
+        } else {
+            queues[flow].add(pid, arrival_time, process_time, tag);
+            waiting++;
+        }
+    }
+
+    /** Serve everything still buffered; call once after the last offer. */
+    public void drain() {
+        advance(Long.MAX_VALUE);
+    }
+
+    private boolean drop() {
+        if (busy + waiting >= size) return true;
+        if (maxTh == 0) return false;
+        avg = (1 - wq) * avg + wq * waiting;
+        if (avg < minTh) return false;
+        if (avg >= maxTh) return true;
+        return random.nextDouble() < maxP * (avg - minTh) / (maxTh - minTh);
+    }
+
+    /** Process all departures at or before t. */
+    private void advance(long t) {
+        while (busy > 0 && finish[0] <= t) {
+            long now = popFinish();
+            if (waiting > 0) {
+                int f = pickFlow();
+                FlowQueue q = queues[f];
+                int i = q.peek();
+                long pid = q.id[i], arrival_time = q.arrival[i];
+                int process_time = q.duration[i];
+                virtualTime = q.tag[i];
+                q.poll();
+                waiting--;
+                start(pid, f, arrival_time, process_time, now);
+            }
+        }
+    }
+
+    private int pickFlow() {
+        int n = queues.length;
+        if (scheduler == Scheduler.RR) {
+            for (int k = 0; k < n; k++) {
+                int f = (rrCursor + k) % n;
+                if (queues[f].count > 0) {
+                    rrCursor = (f + 1) % n;
+                    return f;
+                }
+            }
+        } else {
+            // BZ: O(flows) scan; each flow's tags increase, so heads suffice
+            int best = -1;
+            for (int f = 0; f < n; f++) {
+                FlowQueue q = queues[f];
+                if (q.count > 0 && (best == -1 || q.tag[q.head] < queues[best].tag[queues[best].head])) best = f;
+            }
+            if (best != -1) return best;
+        }
+        throw new IllegalStateException("no waiting packet");
+    }
+
+    private void start(long pid, int flow, long arrival_time, int process_time, long start_time) {
+        long end = start_time + process_time;
+        pushFinish(end);
+        lastFinish = Math.max(lastFinish, end);
+        flowServed[flow]++;
+        if (latencies == latency.length) latency = Arrays.copyOf(latency, latencies * 2);
+        latency[latencies++] = end - arrival_time;
+        if (listener != null) listener.started(pid, flow, start_time);
+    }
+
+    private void pushFinish(long t) {
+        int i = busy++;
+        while (i > 0 && finish[(i - 1) >> 1] > t) {
+            finish[i] = finish[(i - 1) >> 1];
+            i = (i - 1) >> 1;
+        }
+        finish[i] = t;
+    }
+
+    private long popFinish() {
+        long min = finish[0], last = finish[--busy];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= busy) break;
+            if (c + 1 < busy && finish[c + 1] < finish[c]) c++;
+            if (finish[c] >= last) break;
+            finish[i] = finish[c];
+            i = c;
+        }
+        finish[i] = last;
+        return min;
+    }
+
+    // -----stats-----
+
+    public long accepted() { return accepted; }
+    public long dropped() { return dropped; }
+
+    public double dropRate() {
+        long total = accepted + dropped;
+        return total == 0 ? 0 : (double) dropped / total;
+    }
+
+    /** Served packets per time unit, first arrival to last finish. */
+    public double throughput() {
+        long span = lastFinish - firstArrival;
+        return span <= 0 ? 0 : (double) latencies / span;
+    }
+
+    /** Latency (finish - arrival) at quantile q in [0, 1] of packets started so far. */
+    public long latencyPercentile(double q) {
+        if (latencies == 0) return 0;
+        // BZ: order of latency[] is never used, so sort in place, once per new data
+        if (sortedLatencies != latencies) {
+            Arrays.sort(latency, 0, latencies);
+            sortedLatencies = latencies;
+        }
+        return latency[(int) Math.min(latencies - 1, Math.floor(q * latencies))];
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("packets=%d dropped=%d drop_rate=%.4f throughput=%.4f",
+                accepted + dropped, dropped, dropRate(), throughput()));
+        sb.append(String.format(" p50=%d p90=%d p99=%d max=%d",
+                latencyPercentile(0.5), latencyPercentile(0.9), latencyPercentile(0.99), latencyPercentile(1)));
+        for (int f = 0; f < queues.length; f++)
+            sb.append(String.format("%n  flow %d: weight=%.2f served=%d dropped=%d",
+                    f, weight[f], flowServed[f], flowDropped[f]));
+        return sb.toString();
+    }
+
+    /**
+     * usage: java list_stack_tree.PacketSimulator k S rr|wfq tail|red w0 [w1 ...] &lt; trace
+     * trace: n, then n lines "arrival_time process_time flow".
+     * RED uses minTh = S/4, maxTh = 3S/4, maxP = 0.1, wq = 0.002.
+     * No args: self-check against Buffer, then RR/WFQ share, RED and percentile checks.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 5) {
+            int k = Integer.parseInt(args[0]), S = Integer.parseInt(args[1]);
+            Scheduler sched = Scheduler.valueOf(args[2].toUpperCase());
+            double[] w = new double[args.length - 4];
+            for (int f = 0; f < w.length; f++) w[f] = Double.parseDouble(args[4 + f]);
+            PacketSimulator sim = new PacketSimulator(k, S, sched, w, 550, null);
+            if (args[3].equalsIgnoreCase("red")) sim.red(S / 4.0, 3 * S / 4.0, 0.1, 0.002);
+            process_packages.IntReader in = new process_packages.IntReader(System.in);
+            int n = in.nextInt();
+            for (int i = 0; i < n; i++) sim.offer(in.nextInt(), in.nextInt(), in.nextInt());
+            sim.drain();
+            System.out.println(sim.report());
+            return;
+        }
+
+        System.out.println("Checking... (no more output means success)");
+        Random rand = new Random(550);
+        for (int it = 0; it < 500; it++) {
+            int S = 1 + rand.nextInt(8), n = 1 + rand.nextInt(200);
+            final long[] got = new long[n];
+            PacketSimulator sim = new PacketSimulator(1, S, Scheduler.RR, new double[]{1}, 0, new Listener() {
+                public void started(long id, int flow, long start_time) { got[(int) id] = start_time; }
+                public void dropped(long id, int flow) { got[(int) id] = -1; }
+            });
+            Buffer buffer = new Buffer(S);
+            long[] expect = new long[n];
+            int t = 0;
+            for (int i = 0; i < n; i++) {
+                t += rand.nextInt(3);
+                int p = rand.nextInt(4);
+                expect[i] = buffer.process(t, p);
+                sim.offer(t, p, 0);
+            }
+            sim.drain();
+            if (!Arrays.equals(expect, got)) System.out.println("Buffer mismatch! S=" + S);
+        }
+
+        // backlog of two flows at time 0, weights 3:1; in the first quarter
+        // of the busy period WFQ should serve ~3:1, RR 1:1
+        for (Scheduler sched : Scheduler.values()) {
+            final long[] early = new long[2];
+            PacketSimulator sim = new PacketSimulator(2, 1 << 20, sched, new double[]{3, 1}, 550, new Listener() {
+                public void started(long id, int flow, long start_time) { if (start_time < 10000) early[flow]++; }
+                public void dropped(long id, int flow) { }
+            });
+            for (int i = 0; i < 40000; i++) sim.offer(0, 2, i & 1);
+            sim.drain();
+            double ratio = (double) early[0] / early[1];
+            if (sched == Scheduler.WFQ ? Math.abs(ratio - 3) > 0.1 : Math.abs(ratio - 1) > 0.01)
+                System.out.println(sched + " share error! " + ratio);
+        }
+        // RED drops early, so fewer packets wait than with drop-tail
+        PacketSimulator tail = new PacketSimulator(1, 100, Scheduler.RR, new double[]{1}, 550, null);
+        PacketSimulator red = new PacketSimulator(1, 100, Scheduler.RR, new double[]{1}, 550, null).red(10, 50, 0.2, 0.02);
+        for (int i = 0; i < 100000; i++) {
+            tail.offer(i, 2, 0);
+            red.offer(i, 2, 0);
+        }
+        if (!(red.latencyPercentile(0.99) < tail.latencyPercentile(0.99))) System.out.println("RED error!");
+        // percentiles see packets started after an earlier call
+        PacketSimulator one = new PacketSimulator(1, 10, Scheduler.RR, new double[]{1}, 0, null);
+        one.offer(0, 5, 0);
+        one.drain();
+        long before = one.latencyPercentile(1);
+        one.offer(100, 9, 0);
+        one.drain();
+        if (before != 5 || one.latencyPercentile(0) != 5 || one.latencyPercentile(1) != 9)
+            System.out.println("Percentile error!");
+    }
+}
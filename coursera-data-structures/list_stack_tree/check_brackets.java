@@ -1,13 +1,26 @@
 package list_stack_tree;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Random;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 class Bracket {
     Bracket(char type, int position) {
@@ -30,6 +43,88 @@ class Bracket {
 }
 
 class check_brackets {
+    /** Kind of each ASCII char: k > 0 opens bracket k, -k closes it, 0 other. */
+    static final byte[] KIND = new byte[128];
+    static {
+        KIND['('] = 1; KIND[')'] = -1;
+        KIND['['] = 2; KIND[']'] = -2;
+        KIND['{'] = 3; KIND['}'] = -3;
+    }
+
+    /**
+     * Same check as checkBrackets(String), fed chunk by chunk, so memory is
+     * O(unmatched openers) rather than O(input).
+     * <p>
+     * Key Idea: one long[] stack of (position << 2 | kind) instead of a
+     * Stack of Bracket objects; positions are long for multi-GB inputs.
+     */
+    static class BracketStream {
+        private long[] stack = new long[64];
+        private int top;
+        private long position;    // chars consumed so far
+        private long error = -1;  // 0-based position of the first bad closer
+
+        /** @return false once an error is found; later input is ignored. */
+        boolean feed(char[] buf, int off, int len) {
+            for (int i = off; i < off + len; i++, position++) {
+                char c = buf[i];
+                if (c < 128 && KIND[c] != 0 && !push(KIND[c])) return false;
+            }
+            return true;
+        }
+
+        /** Bytes version; positions are byte offsets, equal to chars for ASCII. */
+        boolean feed(byte[] buf, int off, int len) {
+            for (int i = off; i < off + len; i++, position++) {
+                byte c = buf[i];
+                if (c >= 0 && KIND[c] != 0 && !push(KIND[c])) return false;
+            }
+            return true;
+        }
+
+        private boolean push(int kind) {
+            if (kind > 0) {
+                if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = position << 2 | kind;
+                return true;
+            }
+            // BZ: either no opening bracket before it, or closes the wrong one
+            if (top == 0 || (int) (stack[--top] & 3) != -kind) {
+                error = position;
+                return false;
+            }
+            return true;
+        }
+
+        /** @return 0 on success, else the 1-based position checkBrackets prints. */
+        long result() {
+            if (error != -1) return error + 1;
+            return top == 0 ? 0 : (stack[top - 1] >>> 2) + 1;
+        }
+    }
+
+    static String answer(long result) {
+        return result == 0 ? "Success" : String.valueOf(result);
+    }
+
+    public static long checkBrackets(Reader in) throws IOException {
+        BracketStream s = new BracketStream();
+        char[] buf = new char[1 << 16];
+        for (int len; (len = in.read(buf)) != -1; )
+            if (!s.feed(buf, 0, len)) break;
+        return s.result();
+    }
+
+    public static long checkBrackets(ReadableByteChannel in) throws IOException {
+        BracketStream s = new BracketStream();
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        while (in.read(buf) != -1) {
+            if (!s.feed(buf.array(), 0, buf.position())) break;
+            buf.clear();
+        }
+        return s.result();
+    }
+
     public static void checkBrackets(String text) {
         Stack<Bracket> opening_brackets_stack = new Stack<Bracket>();
         for (int position = 0; position < text.length(); ++position) {
@@ -62,7 +157,215 @@ class check_brackets {
         System.out.println(opening_brackets_stack.isEmpty() ? "Success" :
             opening_brackets_stack.peek().position + 1);
     }
+    /**
+     * What a segment leaves for its neighbours once its own pairs cancel:
+     * closers it could not match (for segments to its left), then openers
+     * still open (for segments to its right). Both as (position << 2 | kind).
+     * <p>
+     * Key Idea: the combine is associative, so segments reduce in parallel
+     * and merge in a fork-join tree:</br>
+     * A + B: pop A's openers against B's closers in order; a wrong pair is
+     * an error at B's closer; leftovers concatenate.</br>
+     * A mismatch inside a segment is final, since the top of the stack then
+     * is an opener of that same segment whatever came before.
+     */
+    static class Summary {
+        long[] closers = new long[8];
+        int nc;
+        long[] openers = new long[8];
+        int no;
+        long error = -1;  // 0-based position of the first mismatch seen
+
+        /** @return false once this segment has an error. */
+        boolean push(int kind, long position) {
+            if (kind > 0) {
+                if (no == openers.length) openers = Arrays.copyOf(openers, no * 2);
+                openers[no++] = position << 2 | kind;
+            } else if (no > 0) {
+                if ((int) (openers[--no] & 3) != -kind) return fail(position);
+            } else {
+                if (nc == closers.length) closers = Arrays.copyOf(closers, nc * 2);
+                closers[nc++] = position << 2 | -kind;
+            }
+            return true;
+        }
+
+        private boolean fail(long position) {
+            error = position;
+            no = 0;  // BZ: nothing after the error matters
+            return false;
+        }
+
+        /** this + right, reusing this; right is the segment just after. */
+        Summary combine(Summary right) {
+            if (error != -1) return this;
+            int i = 0;
+            for (; i < right.nc && no > 0; i++) {
+                if ((openers[--no] & 3) != (right.closers[i] & 3)) {
+                    fail(right.closers[i] >>> 2);
+                    return this;
+                }
+            }
+            if (i < right.nc) {
+                closers = append(closers, nc, right.closers, i, right.nc - i);
+                nc += right.nc - i;
+                openers = right.openers;
+                no = right.no;
+            } else {
+                openers = append(openers, no, right.openers, 0, right.no);
+                no += right.no;
+            }
+            error = right.error;
+            return this;
+        }
+
+        private static long[] append(long[] a, int n, long[] b, int from, int len) {
+            if (n + len > a.length) a = Arrays.copyOf(a, Math.max(n + len, a.length * 2));
+            System.arraycopy(b, from, a, n, len);
+            return a;
+        }
+
+        /** Same convention as BracketStream.result(). */
+        long result() {
+            // BZ: any leftover closer lies before the error, so it wins
+            if (nc > 0) return (closers[0] >>> 2) + 1;
+            if (error != -1) return error + 1;
+            return no == 0 ? 0 : (openers[no - 1] >>> 2) + 1;
+        }
+    }
+
+    /** Reduces positions [from, to) of some input to a Summary. */
+    interface Segment {
+        Summary reduce(long from, long to) throws IOException;
+    }
+
+    static class SegmentReduce extends RecursiveTask<Summary> {
+        private static final long serialVersionUID = 1L;
+        static final int CHUNK = 1 << 22;
+        private final Segment input;
+        private final long lo, hi;
+        private final int chunk;
+
+        SegmentReduce(Segment input, long lo, long hi, int chunk) {
+            this.input = input;
+            this.lo = lo;
+            this.hi = hi;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (hi - lo <= chunk) {
+                try {
+                    return input.reduce(lo, hi);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long mid = lo + (hi - lo) / 2;
+            SegmentReduce left = new SegmentReduce(input, lo, mid, chunk);
+            left.fork();
+            Summary right = new SegmentReduce(input, mid, hi, chunk).compute();
+            return left.join().combine(right);
+        }
+    }
+
+    /** Parallel checkBrackets(String); same answer, 0 meaning Success. */
+    public static long checkBracketsParallel(CharSequence text, ForkJoinPool pool) {
+        return checkBracketsParallel(text, pool, SegmentReduce.CHUNK);
+    }
+
+    /** With segments of at most chunk chars; small chunks test the combine. */
+    static long checkBracketsParallel(final CharSequence text, ForkJoinPool pool, int chunk) {
+        return pool.invoke(new SegmentReduce((from, to) -> {
+            Summary s = new Summary();
+            for (int i = (int) from; i < to; i++) {
+                char c = text.charAt(i);
+                if (c < 128 && KIND[c] != 0 && !s.push(KIND[c], i)) break;
+            }
+            return s;
+        }, 0, text.length(), chunk)).result();
+    }
+
+    /** Parallel check of a whole file; positions are byte offsets. */
+    public static long checkBracketsParallel(final FileChannel ch, ForkJoinPool pool) throws IOException {
+        try {
+            return pool.invoke(new SegmentReduce((from, to) -> {
+                Summary s = new Summary();
+                ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+                // positional reads: segments share the channel safely
+                while (buf.hasRemaining() && ch.read(buf, from + buf.position()) != -1) { }
+                byte[] a = buf.array();
+                for (int i = 0; i < buf.position(); i++) {
+                    byte c = a[i];
+                    if (c >= 0 && KIND[c] != 0 && !s.push(KIND[c], from + i)) break;
+                }
+                return s;
+            }, 0, ch.size(), SegmentReduce.CHUNK)).result();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Random strings, mostly balanced with one char changed, so errors
+     * land anywhere: checkBrackets(String), the streaming checker and the
+     * parallel one with 1..5 char segments must all give the same answer.
+     */
+    static void stressTest(int rounds) throws IOException {
+        Random rand = new Random(550);
+        String brackets = "([{)]}";
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        StringBuilder sb = new StringBuilder();
+        char[] open = new char[64];
+        for (int round = 0; round < rounds; round++) {
+            sb.setLength(0);
+            int len = rand.nextInt(40), depth = 0;
+            while (sb.length() < len) {
+                int r = rand.nextInt(5);
+                if (r == 0) sb.append('x');
+                else if (r <= 2 && depth > 0) sb.append(")]}".charAt("([{".indexOf(open[--depth])));
+                else if (depth < open.length) sb.append(open[depth++] = "([{".charAt(rand.nextInt(3)));
+            }
+            if (sb.length() > 0 && rand.nextBoolean())
+                sb.setCharAt(rand.nextInt(sb.length()), brackets.charAt(rand.nextInt(brackets.length())));
+            String text = sb.toString();
+
+            printed.reset();
+            System.setOut(new PrintStream(printed));
+            checkBrackets(text);
+            System.setOut(stdout);
+            String expected = printed.toString().trim();
+            String streamed = answer(checkBrackets(new StringReader(text)));
+            String parallel = answer(checkBracketsParallel(text, ForkJoinPool.commonPool(), 1 + rand.nextInt(5)));
+            if (!expected.equals(streamed) || !expected.equals(parallel))
+                System.out.println("Error! " + text + " expected=" + expected
+                        + " streamed=" + streamed + " parallel=" + parallel);
+        }
+    }
+
+    /**
+     * usage: java list_stack_tree.check_brackets [--parallel] [file ...]
+     * with files, each is streamed through checkBrackets(channel), or
+     * split across all cores with --parallel; --check runs stressTest().
+     */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--check")) {
+            System.out.println("Checking... (no more output means success)");
+            stressTest(args.length > 1 ? Integer.parseInt(args[1]) : 200000);
+            return;
+        }
+        boolean parallel = args.length > 0 && args[0].equals("--parallel");
+        if (args.length > (parallel ? 1 : 0)) {
+            for (String name : Arrays.copyOfRange(args, parallel ? 1 : 0, args.length)) {
+                try (FileChannel ch = FileChannel.open(Paths.get(name), StandardOpenOption.READ)) {
+                    long res = parallel ? checkBracketsParallel(ch, ForkJoinPool.commonPool()) : checkBrackets(ch);
+                    System.out.println(name + ": " + answer(res));
+                }
+            }
+            return;
+        }
         // http://stackoverflow.com/a/1846349
         File folder = new File("/home/chongrui/Downloads/pa1");
         if (! folder.exists()) {
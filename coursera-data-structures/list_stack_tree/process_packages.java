@@ -1,12 +1,14 @@
 package list_stack_tree;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Scanner;
 
 /**
  * Network packet processing simulation.
@@ -23,121 +25,133 @@ import java.util.Scanner;
  * Example: S=3, n=6, A=[0 1 2 3 4 5]
  *          P=[2 2 2 2 2 2]
  */
-class Request {
-    public Request(int arrival_time, int process_time) {
-        this.arrival_time = arrival_time;
-        this.process_time = process_time;
-    }
+class process_packages {
+    /** Non-negative/negative ints straight from the bytes of a stream. */
+    static class IntReader {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int len, pos;
 
-    public int arrival_time;
-    public int process_time;
-}
+        IntReader(InputStream in) {
+            this.in = in;
+        }
 
-class Response {
-    public Response(boolean dropped, int start_time) {
-        this.dropped = dropped;
-        this.start_time = start_time;
-    }
+        private int read() throws IOException {
+            if (pos == len) {
+                // BZ: EOF is sticky; pos == len == -1 from then on, o.w.
+                // the next read() returns stale bytes of buf
+                if (len == -1) return -1;
+                len = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (len <= 0) {
+                    pos = len = -1;
+                    return -1;
+                }
+            }
+            return buf[pos++];
+        }
 
-    public boolean dropped;
-    public int start_time;
-}
+        long nextLong() throws IOException {
+            int c = read();
+            while (c != -1 && c <= ' ') c = read();
+            if (c == -1) throw new EOFException();
+            boolean neg = c == '-';
+            if (neg) c = read();
+            long x = 0;
+            for (; c > ' '; c = read()) {
+                if (c < '0' || c > '9') throw new NumberFormatException("unexpected '" + (char) c + "'");
+                x = x * 10 + c - '0';
+            }
+            return neg ? -x : x;
+        }
 
-class Buffer {
-    public Buffer(int size) {
-        this.size_ = size;
-        this.finish_time_ = new ArrayList<Integer>();
+        int nextInt() throws IOException {
+            long x = nextLong();
+            if (x != (int) x) throw new NumberFormatException(x + " is not an int");
+            return (int) x;
+        }
     }
 
-    /**
-     * Key Idea:
-     * When each process i comes, decide:
-     *     if it will be dropped or not?
-     *     if enqueued, what is its start/finish time?
-     * Pop all packets in buffer that have already finished;
-     * If buffer is full, drop i and output -1;
-     * Determine the start_time by queue:
-     *     if queue is empty, process i as it arrives;
-     *     else, enqueue i after last finish_time;
-     *     (i.e. should wait in queue if not idle)
-     *
-     * @param request
-     * @return
-     */
-    public Response Process(Request request) {
-        // Free buffer only when the process finished
-        while (!finish_time_.isEmpty() &&
-                finish_time_.get(0) <= request.arrival_time) {
-            // BZ: the process finishes at i's arrival? -> finished
-            //     example: S=1, n=2, A=[0,0],P=[0,1|0]
-            // 1st request finishes at 0 but 2nd also comes at 0...
-            finish_time_.remove(0);
-            /* @Note:
-             * This finally popped request has nothing to do
-             * with the current new request i; i either waits
-             * in queue or gets processed if idle. */
+    /** One long per line into a byte buffer; no String per response. */
+    static class LineWriter {
+        private final OutputStream out;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+
+        LineWriter(OutputStream out) {
+            this.out = out;
         }
-        // If still full, just drop it;
-        if (finish_time_.size() == size_) {
-            return new Response(true, -1);
+
+        void println(long x) throws IOException {
+            // room for "-9223372036854775808\n"
+            if (pos + 21 > buf.length) flushBuffer();
+            if (x < 0) {
+                // BZ: -Long.MIN_VALUE overflows; never a start time anyway
+                if (x == Long.MIN_VALUE) {
+                    for (byte b : Long.toString(x).getBytes()) buf[pos++] = b;
+                    buf[pos++] = '\n';
+                    return;
+                }
+                buf[pos++] = '-';
+                x = -x;
+            }
+            int start = pos;
+            do {
+                buf[pos++] = (byte) ('0' + x % 10);
+                x /= 10;
+            } while (x > 0);
+            // digits went in backwards
+            for (int i = start, j = pos - 1; i < j; i++, j--) {
+                byte tmp = buf[i]; buf[i] = buf[j]; buf[j] = tmp;
+            }
+            buf[pos++] = '\n';
         }
-        // Compute start_time and enqueue finish_time.
-        // If no buffer waiting, i.e. idle, start instantly;
-        // else wait at the end...
-        // BZ: start_time is `at least arrival time`...
-        // BZ: start_time is the finish_time popped at last?
-        //     or it waits at end of queue?
-        int current_start_time = finish_time_.isEmpty() ? request.arrival_time :
-            finish_time_.get(finish_time_.size() - 1);
-        finish_time_.add(current_start_time + request.process_time);
-        return new Response(false, current_start_time);
-    }
 
-    private int size_;
-    private ArrayList<Integer> finish_time_;
-}
+        void print(String s) throws IOException {
+            flushBuffer();
+            out.write(s.getBytes());
+        }
 
-class process_packages {
-    private static ArrayList<Request> ReadQueries(Scanner scanner) throws IOException {
-        int requests_count = scanner.nextInt();
-        ArrayList<Request> requests = new ArrayList<Request>();
-        for (int i = 0; i < requests_count; ++i) {
-            int arrival_time = scanner.nextInt();
-            int process_time = scanner.nextInt();
-            requests.add(new Request(arrival_time, process_time));
+        private void flushBuffer() throws IOException {
+            out.write(buf, 0, pos);
+            pos = 0;
         }
-        return requests;
-    }
 
-    private static ArrayList<Response> ProcessRequests(ArrayList<Request> requests, Buffer buffer) {
-        ArrayList<Response> responses = new ArrayList<Response>();
-        for (int i = 0; i < requests.size(); ++i) {
-            responses.add(buffer.Process(requests.get(i)));
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
         }
-        return responses;
     }
 
-    private static void PrintResponses(ArrayList<Response> responses) {
-        for (int i = 0; i < responses.size(); ++i) {
-            Response response = responses.get(i);
-            if (response.dropped) {
-                System.out.println(-1);
-            } else {
-                System.out.println(response.start_time);
-            }
+    /**
+     * Streaming pipeline: read one request, let the buffer decide, write the
+     * start time, next. Only the buffer's S finish times are kept, so memory
+     * is O(S) however long the trace is.
+     *
+     * @param report second sink for the same lines, or null
+     * @return number of requests processed
+     */
+    private static long ProcessStream(IntReader in, Buffer buffer, LineWriter out, LineWriter report)
+            throws IOException {
+        long requests_count = in.nextLong();
+        for (long i = 0; i < requests_count; ++i) {
+            long arrival_time = in.nextLong();
+            int process_time = in.nextInt();
+            long start_time = buffer.process(arrival_time, process_time);
+            out.println(start_time);
+            if (report != null) report.println(start_time);
         }
+        return requests_count;
     }
 
     public static void main(String[] args) throws IOException {
         File folder = new File("/home/chongrui/Downloads/pa1/pa1-network");
+        LineWriter out = new LineWriter(System.out);
         if (! folder.exists()) {
-            Scanner scanner = new Scanner(System.in);
-            int buffer_max_size = scanner.nextInt();
-            Buffer buffer = new Buffer(buffer_max_size);
-            ArrayList<Request> requests = ReadQueries(scanner);
-            ArrayList<Response> responses = ProcessRequests(requests, buffer);
-            PrintResponses(responses);
-            scanner.close();
+            IntReader in = new IntReader(System.in);
+            int buffer_max_size = in.nextInt();
+            ProcessStream(in, new Buffer(buffer_max_size), out, null);
+            out.flush();
             return;
         }
         File[] files = folder.listFiles();
@@ -149,22 +163,18 @@ class process_packages {
         });
         for (File test : files) {
             if (test.getName().endsWith("-report")) continue;
-            System.out.print("Test file #" + test.getName() + ":\n");
-
-            Scanner scanner = new Scanner(test);
-            int buffer_max_size = scanner.nextInt();
-            Buffer buffer = new Buffer(buffer_max_size);
-            ArrayList<Request> requests = ReadQueries(scanner);
-            ArrayList<Response> responses = ProcessRequests(requests, buffer);
-            PrintResponses(responses);
+            out.print("Test file #" + test.getName() + ":\n");
 
-            scanner.close();
             String path = test.getPath();
-            FileWriter fw = new FileWriter(new File(path + "-report"), true);
-            for (Response response : responses) {
-                fw.write(response.start_time + "\n");
+            try (InputStream is = new FileInputStream(test);
+                 OutputStream fw = new FileOutputStream(new File(path + "-report"), true)) {
+                IntReader in = new IntReader(is);
+                LineWriter report = new LineWriter(fw);
+                int buffer_max_size = in.nextInt();
+                ProcessStream(in, new Buffer(buffer_max_size), out, report);
+                report.flush();
             }
-            fw.close();
         }
+        out.flush();
     }
 }
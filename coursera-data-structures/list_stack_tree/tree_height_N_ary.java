@@ -2,12 +2,18 @@ package list_stack_tree;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Compute tree height.
@@ -40,46 +46,13 @@ public class tree_height_N_ary {
     public class TreeHeight {
         int n;
         int parent[];
-        // Flag on if reading keyboard input or files in a directory
-        boolean readFiles = true;
 
         void read() throws IOException {
-            File folder = new File("/path/to/pa1-tree");  // Please change workspace.
-            if (! folder.exists()) {
-                FastScanner in = new FastScanner();
-                n = in.nextInt();
-                parent = new int[n];
-                for (int i = 0; i < n; i++) {
-                    parent[i] = in.nextInt();
-                }
-                readFiles = false;
-                return;
-            }
-            File[] files = folder.listFiles();
-            Arrays.sort(files, new Comparator<File>(){
-                @Override
-                public int compare (File f1, File f2) {
-                    return f1.getName().compareTo(f2.getName());
-                }
-            });
-            for (File test : files) {
-                if (test.getName().equals("report")) continue;
-                System.out.print(test.getName() + ": ");
-                FileReader input_stream = new FileReader(test);
-                BufferedReader reader = new BufferedReader(input_stream);
-                this.n = Integer.parseInt(reader.readLine());
-                this.parent = new int[n];
-                String[] in = reader.readLine().split(" ");
-                if (in.length != n) {
-                    System.out.println("Input numbers error: n="
-                            + n + " in=" + Arrays.toString(in));
-                    continue;
-                }
-                for (int i = 0; i < n; i++) {
-                    parent[i] = Integer.parseInt(in[i]);
-                }
-                this.measure_and_print();
-                reader.close();
+            FastScanner in = new FastScanner();
+            n = in.nextInt();
+            parent = new int[n];
+            for (int i = 0; i < n; i++) {
+                parent[i] = in.nextInt();
             }
         }
         /** O(N*h) */
@@ -109,23 +82,221 @@ public class tree_height_N_ary {
             return heights[i];
         }
 
+        /** Result of computeLevels(): height, per-level widths, optional depths. */
+        public class Levels {
+            int height;
+            // width[d]: number of nodes at depth d (root at depth 0)
+            int[] width;
+            // depth[i] of node i, or null if not requested
+            int[] depth;
+        }
+
+        /** O(N), no recursion: children in CSR form, then one BFS by level. */
+        int computeHeight_bfs() {
+            return computeLevels(false).height;
+        }
+
+        /**
+         * Key Idea:</br>
+         * 1. Count children of each parent, prefix-sum the counts into start[];
+         *    children of p are then child[start[p] .. start[p+1]).</br>
+         * 2. BFS from the root, one level at a time; the BFS queue is a
+         *    single int[n] and each level is a contiguous slice of it.
+         */
+        Levels computeLevels(boolean withDepth) {
+            Levels res = new Levels();
+            int[] start = new int[n + 1];
+            int root = -1;
+            for (int i = 0; i < n; i++) {
+                if (parent[i] == -1) root = i;
+                else start[parent[i] + 1]++;
+            }
+            for (int p = 0; p < n; p++) start[p + 1] += start[p];
+            // BZ: fill through a cursor copy so start[] stays intact
+            int[] child = new int[Math.max(n - 1, 0)];
+            int[] next = Arrays.copyOf(start, n);
+            for (int i = 0; i < n; i++)
+                if (parent[i] != -1) child[next[parent[i]]++] = i;
+            next = null;
+
+            int[] queue = new int[n];
+            int[] width = new int[16];
+            if (withDepth) res.depth = new int[n];
+            if (root == -1) {
+                res.width = new int[0];
+                return res;
+            }
+            int head = 0, tail = 0, level = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int levelEnd = tail;
+                if (level == width.length) width = Arrays.copyOf(width, level * 2);
+                width[level] = levelEnd - head;
+                for (; head < levelEnd; head++) {
+                    int v = queue[head];
+                    if (withDepth) res.depth[v] = level;
+                    for (int j = start[v]; j < start[v + 1]; j++) queue[tail++] = child[j];
+                }
+                level++;
+            }
+            res.height = level;
+            res.width = Arrays.copyOf(width, level);
+            return res;
+        }
+
         /**
          * Helper function to measure timing of fast algorithm and
-         * compare the result of naive one.
+         * compare the result of the memoized one.
          */
         private void measure_and_print () {
             long start = System.currentTimeMillis();
-            int fast   = computeHeight_fast();
+            int fast   = computeHeight_bfs();
             long end   = System.currentTimeMillis();
-            int naive  = computeHeight_naive();
-            // int naive = fast;
-            System.out.println((naive == fast ? "OK" :
-                    "Error!") + " naive=" + naive + " fast=" + fast + 
+            // BZ: memoized dp recurses h deep and naive is O(N*h); only
+            // cross-check within the assignment's bound 10^5
+            int memo   = n <= 100000 ? computeHeight_fast() : fast;
+            System.out.println((memo == fast ? "OK" :
+                    "Error!") + " memo=" + memo + " fast=" + fast + 
                     " timing=" + (end - start));
         }
     }
 
-    static public void main(String[] args) throws IOException {
+    /**
+     * Parse ints straight from the bytes of a whole file; no Strings.
+     */
+    static class ByteParser {
+        private final byte[] buf;
+        private int pos;
+
+        ByteParser(byte[] buf) {
+            this.buf = buf;
+        }
+
+        /** @return false if only whitespace is left. */
+        boolean hasNext() {
+            while (pos < buf.length && buf[pos] <= ' ') pos++;
+            return pos < buf.length;
+        }
+
+        int nextInt() {
+            if (!hasNext()) throw new NumberFormatException("unexpected end of input");
+            boolean neg = buf[pos] == '-';
+            if (neg) pos++;
+            int start = pos, x = 0;
+            for (; pos < buf.length && buf[pos] > ' '; pos++) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) throw new NumberFormatException("bad byte at " + pos);
+                x = x * 10 + d;
+            }
+            if (pos == start) throw new NumberFormatException("bad number at " + pos);
+            return neg ? -x : x;
+        }
+    }
+
+    /** One row of the batch summary. */
+    static class FileResult {
+        String name;
+        String status;  // OK, WRONG (differs from .a file), NO_ANSWER, BAD_INPUT
+        int n, height = -1, expected = -1;
+        long parseMs, computeMs;
+
+        @Override
+        public String toString() {
+            return name + "\t" + status + "\t" + n + "\t" + height + "\t"
+                    + expected + "\t" + parseMs + "\t" + computeMs;
+        }
+    }
+
+    FileResult runFile(File test) {
+        FileResult res = new FileResult();
+        res.name = test.getName();
+        long t0 = System.nanoTime();
+        TreeHeight tree = new TreeHeight();
+        try {
+            ByteParser in = new ByteParser(Files.readAllBytes(test.toPath()));
+            tree.n = in.nextInt();
+            tree.parent = new int[tree.n];
+            // BZ: computeLevels() indexes by parent and needs a root; reject
+            // such input here, o.w. it throws outside and ends the batch
+            int roots = 0;
+            for (int i = 0; i < tree.n; i++) {
+                int p = in.nextInt();
+                if (p < -1 || p >= tree.n) throw new IllegalArgumentException("parent " + p + " of " + i);
+                if (p == -1) roots++;
+                tree.parent[i] = p;
+            }
+            if (roots != 1) throw new IllegalArgumentException(roots + " roots");
+            if (in.hasNext()) throw new NumberFormatException("more than n numbers");
+            // expected answer, if the test ships one (01 -> 01.a)
+            File answer = new File(test.getParentFile(), test.getName() + ".a");
+            if (answer.exists()) res.expected = new ByteParser(Files.readAllBytes(answer.toPath())).nextInt();
+        } catch (IOException | RuntimeException e) {
+            res.status = "BAD_INPUT";
+            res.parseMs = (System.nanoTime() - t0) / 1000000;
+            return res;
+        }
+        long t1 = System.nanoTime();
+        res.n = tree.n;
+        res.height = tree.computeHeight_bfs();
+        long t2 = System.nanoTime();
+        res.parseMs = (t1 - t0) / 1000000;
+        res.computeMs = (t2 - t1) / 1000000;
+        res.status = res.expected == -1 ? "NO_ANSWER" : res.expected == res.height ? "OK" : "WRONG";
+        return res;
+    }
+
+    /**
+     * Batch mode: every test file in dir (not the .a answers or "report"),
+     * parsed and solved on a fixed pool of threads; prints one tab separated
+     * row per file in name order, then a total row.
+     * @return number of files that were WRONG or BAD_INPUT
+     */
+    int runBatch(File dir, int threads) throws InterruptedException {
+        File[] files = dir.listFiles();
+        if (files == null) throw new IllegalArgumentException("not a directory: " + dir);
+        Arrays.sort(files, new Comparator<File>(){
+            @Override
+            public int compare (File f1, File f2) {
+                return f1.getName().compareTo(f2.getName());
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<FileResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (final File test : files) {
+            if (!test.isFile() || test.getName().equals("report") || test.getName().endsWith(".a")) continue;
+            futures.add(pool.submit(() -> runFile(test)));
+        }
+        System.out.println("file\tstatus\tn\theight\texpected\tparse_ms\tcompute_ms");
+        int failed = 0;
+        try {
+            for (Future<FileResult> f : futures) {
+                FileResult res = f.get();
+                if (res.status.equals("WRONG") || res.status.equals("BAD_INPUT")) failed++;
+                System.out.println(res);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        // n, height and expected do not add up; wall time goes under compute_ms
+        System.out.println("TOTAL(" + futures.size() + " files)\t" + (failed == 0 ? "OK" : "FAILED=" + failed)
+                + "\t-\t-\t-\t-\t" + (System.nanoTime() - start) / 1000000);
+        return failed;
+    }
+
+    /**
+     * usage: java list_stack_tree.tree_height_N_ary [dir [threads]]
+     * no args: one tree from stdin; dir: batch over a test folder.
+     */
+    static public void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0) {
+            int threads = args.length > 1 ? Integer.parseInt(args[1])
+                    : Runtime.getRuntime().availableProcessors();
+            int failed = new tree_height_N_ary().runBatch(new File(args[0]), threads);
+            System.exit(failed == 0 ? 0 : 1);
+        }
         new Thread(null, new Runnable() {
             public void run() {
                 try {
@@ -139,8 +310,6 @@ public class tree_height_N_ary {
     public void run() throws IOException {
         TreeHeight tree = new TreeHeight();
         tree.read();
-        if (! tree.readFiles) {
-            tree.measure_and_print();
-        }
+        tree.measure_and_print();
     }
 }
@@ -1,28 +1,30 @@
 package priorityQueues_disjointSets;
 
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Random;
-import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class BuildHeap {
     private int[] data;
-    private List<Swap> swaps;
-    private List<Swap> swaps_naive;
+    private SwapLog swaps;
+    private SwapLog swaps_naive;
 
     private FastScanner in;
-    private PrintWriter out;
 
+    /** usage: java priorityQueues_disjointSets.BuildHeap [bench [n]] */
     public static void main(String[] args) throws IOException {
         // new BuildHeap().solve();
-        new BuildHeap().stressTest();
+        if (args.length > 0 && args[0].equals("bench"))
+            new BuildHeap().benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 10000000);
+        else
+            new BuildHeap().stressTest();
     }
 
     private void readData() throws IOException {
@@ -33,15 +35,8 @@ public class BuildHeap {
         }
     }
 
-    private void writeResponse() {
-        out.println(swaps.size());
-        for (Swap swap : swaps) {
-            out.println(swap.index1 + " " + swap.index2);
-        }
-    }
-
     private void generateSwaps_naive() {
-        swaps_naive = new ArrayList<Swap>();
+        swaps_naive = new SwapLog();
         // The following naive implementation just sorts 
         // the given sequence using selection sort algorithm
         // and saves the resulting sequence of swaps.
@@ -52,7 +47,7 @@ public class BuildHeap {
         for (int i = 0; i < data.length; ++i) {
             for (int j = i + 1; j < data.length; ++j) {
                 if (data[i] > data[j]) {
-                    swaps.add(new Swap(i, j));
+                    swaps_naive.swap(i, j);
                     int tmp = data[i];
                     data[i] = data[j];
                     data[j] = tmp;
@@ -69,37 +64,271 @@ public class BuildHeap {
      * During the sink step, record all swaps
      */
     private void generateSwaps() {
-        swaps = new ArrayList<Swap>();
-        // Note 0-based index
-        for (int i = data.length / 2; i >= 0; i--) {
-            sink(i);
+        swaps = new SwapLog();
+        heapify(data, 2, false, false, swaps);
+    }
+
+    /** Receives each swap (i, j) as it is made. */
+    interface SwapSink {
+        void swap(int i, int j);
+    }
+
+    /** Swaps as index pairs in one growable int[]: 8 bytes a swap. */
+    static class SwapLog implements SwapSink {
+        int[] pairs = new int[64];
+        int size;
+
+        @Override
+        public void swap(int i, int j) {
+            if (2 * size == pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            pairs[2 * size] = i;
+            pairs[2 * size + 1] = j;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean sameAs(SwapLog o) {
+            return size == o.size && Arrays.equals(pairs, 0, 2 * size, o.pairs, 0, 2 * size);
+        }
+
+        void append(SwapLog o) {
+            if (2 * (size + o.size) > pairs.length)
+                pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, 2 * (size + o.size)));
+            System.arraycopy(o.pairs, 0, pairs, 2 * size, 2 * o.size);
+            size += o.size;
+        }
+
+        /** Replay the swaps on a. */
+        void applyTo(int[] a) {
+            for (int k = 0; k < 2 * size; k += 2) {
+                int tmp = a[pairs[k]];
+                a[pairs[k]] = a[pairs[k + 1]];
+                a[pairs[k + 1]] = tmp;
+            }
         }
     }
-    /**Sink element i to maintain min-heap property.
+
+    /** Writes "i j" lines into a byte buffer; no object per swap. */
+    static class SwapWriter implements SwapSink {
+        private final OutputStream out;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+
+        SwapWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void swap(int i, int j) {
+            // room for two ints, a space and a newline
+            if (pos + 22 > buf.length) flushBuffer();
+            writeInt(i);
+            buf[pos++] = ' ';
+            writeInt(j);
+            buf[pos++] = '\n';
+        }
+
+        void line(int x) {
+            if (pos + 11 > buf.length) flushBuffer();
+            writeInt(x);
+            buf[pos++] = '\n';
+        }
+
+        private void writeInt(int x) {
+            // indices and counts are never negative
+            int start = pos;
+            do {
+                buf[pos++] = (byte) ('0' + x % 10);
+                x /= 10;
+            } while (x > 0);
+            // digits went in backwards
+            for (int i = start, j = pos - 1; i < j; i++, j--) {
+                byte tmp = buf[i]; buf[i] = buf[j]; buf[j] = tmp;
+            }
+        }
+
+        private void flushBuffer() {
+            try {
+                out.write(buf, 0, pos);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos = 0;
+        }
+
+        void flush() {
+            flushBuffer();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Floyd's heapify, in place: sink every inner node, last one first.
      * <p>
-     * Choose the smaller of left/right child, if any.
+     * d-ary: children of i are d*i+1 .. d*i+d.
+     * Max-heap: compare x ^ -1 (= ~x), which reverses the order of ints
+     * with no overflow, so one code path serves both.
+     * Bounce (bottom-up): walk the hole down the smaller children to a
+     * leaf without comparing against the sunk value (d-1 comparisons a
+     * level instead of d), then climb back to where the value belongs.
+     * It stops at the same node as sink(), so the swaps are identical.
+     * Worth it when comparisons are costly; on int keys, where Floyd's
+     * sifts mostly stop within a level or two, plain sink is as fast.
+     *
+     * @param sink gets the swaps in order; may be null
+     */
+    static void heapify(int[] a, int d, boolean maxHeap, boolean bounce, SwapSink sink) {
+        if (d < 2) throw new IllegalArgumentException("d = " + d);
+        // BZ: for n = 0 and d > 2, (n - 2) / d truncates to 0, not -1
+        if (a.length < 2) return;
+        int flip = maxHeap ? -1 : 0;
+        int[] path = new int[32];
+        // Note 0-based index; (n - 2) / d is the last inner node
+        for (int i = (a.length - 2) / d; i >= 0; i--) {
+            if (bounce) bounce(a, i, d, flip, sink, path);
+            else sink(a, i, d, flip, sink);
+        }
+    }
+
+    /**Sink element i to maintain the heap property.
+     * <p>
+     * Choose the smallest of the d children, if any.
      * Terminate if i is already less than children.
-     * Swap with the smaller child, record the swap.
-     * Trace i downwards to the smaller children.
+     * Swap with the smallest child, record the swap.
+     * Trace i downwards to the smallest child.
      * Terminate if i has no children.
      *
      * @param i the index where sinking begins
      */
-    private void sink(int i) {
-        int n = data.length;
-        // While i has at least one left child
-        while (i * 2 + 1 < n) {
-            int j = i * 2 + 1;  // left child
-            // Decide if right child exists and the smaller child
-            j = (j + 1 < n && data[j + 1] < data[j]) ? j + 1 : j;
+    private static void sink(int[] a, int i, int d, int flip, SwapSink sink) {
+        int n = a.length, last = (n - 2) / d;
+        int value = a[i], v = value ^ flip;
+        // While i has at least one child; BZ: test i before d * i overflows
+        while (n > 1 && i <= last) {
+            int c = d * i + 1, end = Math.min(c + d, n), m = c;
+            // Decide the smallest child; ties go to the leftmost
+            for (int k = c + 1; k < end; k++)
+                if ((a[k] ^ flip) < (a[m] ^ flip)) m = k;
             // BZ: no swap if i == smallest child?
-            if (data[i] <= data[j]) return;
-            swaps.add(new Swap(i, j));
-            int tmp = data[i];
-            data[i] = data[j];
-            data[j] = tmp;
-            i = j;  // Forward i to its smaller child
+            if (v <= (a[m] ^ flip)) break;
+            a[i] = a[m];
+            if (sink != null) sink.swap(i, m);
+            i = m;  // Forward i to its smallest child
+        }
+        a[i] = value;
+    }
+
+    private static void bounce(int[] a, int i, int d, int flip, SwapSink sink, int[] path) {
+        int n = a.length, last = (n - 2) / d;
+        int value = a[i], v = value ^ flip;
+        // 1. down to a leaf along the smallest children
+        int q = i;
+        while (n > 1 && q <= last) {
+            int c = d * q + 1, end = Math.min(c + d, n), m = c;
+            for (int k = c + 1; k < end; k++)
+                if ((a[k] ^ flip) < (a[m] ^ flip)) m = k;
+            q = m;
+        }
+        // 2. back up past every child not smaller than value; the
+        //    children on the path only grow downwards, so this is a prefix
+        while (q != i && (a[q] ^ flip) >= v) q = (q - 1) / d;
+        if (q == i) return;
+        // 3. shift the path i..q up by one, top-down, and drop value at q
+        int len = 0;
+        for (int p = q; p != i; p = (p - 1) / d) path[len++] = p;
+        int from = i;
+        for (int k = len - 1; k >= 0; k--) {
+            a[from] = a[path[k]];
+            if (sink != null) sink.swap(from, path[k]);
+            from = path[k];
+        }
+        a[q] = value;
+    }
+
+    /** Nodes per task in heapifyParallel. */
+    private static final int PARALLEL_CHUNK = 1 << 13;
+
+    /**
+     * Parallel Floyd's heapify.
+     * <p>
+     * Key Idea: a sink from node i only touches the subtree of i, and
+     * nodes of one level have disjoint subtrees; so go level by level,
+     * deepest first, and sink each level's nodes in chunks on the pool.
+     * Sequential heapify visits the same nodes in the same order (levels
+     * are contiguous index ranges, walked from high index to low), so
+     * concatenating the chunk logs from high index to low gives exactly
+     * its swap log.
+     *
+     * @param log whether to record swaps
+     * @return the swap log, or null if not requested
+     */
+    static SwapLog heapifyParallel(int[] a, int d, boolean maxHeap, boolean log, ForkJoinPool pool) {
+        return heapifyParallel(a, d, maxHeap, log, pool, PARALLEL_CHUNK);
+    }
+
+    static SwapLog heapifyParallel(final int[] a, final int d, boolean maxHeap, boolean log,
+                                   ForkJoinPool pool, final int chunk) {
+        if (d < 2) throw new IllegalArgumentException("d = " + d);
+        final int flip = maxHeap ? -1 : 0;
+        SwapLog all = log ? new SwapLog() : null;
+        int n = a.length, last = (n - 2) / d;
+        if (n < 2) return all;
+        // first index of each level: 0, 1, 1 + d, 1 + d + d^2, ...
+        int[] levelStart = new int[33];
+        int levels = 0;
+        for (long start = 0, width = 1; start <= last; start += width, width *= d)
+            levelStart[levels++] = (int) start;
+        levelStart[levels] = last + 1;
+        for (int L = levels - 1; L >= 0; L--) {
+            final int lo = levelStart[L], hi = Math.min(levelStart[L + 1], last + 1) - 1;
+            final int chunks = (hi - lo) / chunk + 1;
+            if (chunks == 1) {
+                for (int i = hi; i >= lo; i--) sink(a, i, d, flip, all);
+                continue;
+            }
+            final SwapLog[] logs = log ? new SwapLog[chunks] : null;
+            // chunk c covers hi - c*chunk down to hi - (c+1)*chunk + 1
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    run(0, chunks);
+                }
+                private void run(int c0, int c1) {
+                    if (c1 - c0 > 1) {
+                        final int mid = (c0 + c1) >>> 1;
+                        RecursiveAction left = new RecursiveAction() {
+                            @Override
+                            protected void compute() {
+                                run(c0, mid);
+                            }
+                        };
+                        left.fork();
+                        run(mid, c1);
+                        left.join();
+                        return;
+                    }
+                    SwapLog mine = logs == null ? null : (logs[c0] = new SwapLog());
+                    int top = hi - c0 * chunk, bottom = Math.max(lo, top - chunk + 1);
+                    for (int i = top; i >= bottom; i--) sink(a, i, d, flip, mine);
+                }
+            });
+            if (log) for (SwapLog l : logs) all.append(l);
         }
+        return all;
+    }
+
+    private static boolean isHeap(int[] a, int d, boolean maxHeap) {
+        int flip = maxHeap ? -1 : 0;
+        for (int i = 1; i < a.length; i++)
+            if ((a[(i - 1) / d] ^ flip) > (a[i] ^ flip)) return false;
+        return true;
     }
 
     /**
@@ -109,46 +338,92 @@ public class BuildHeap {
      *              All ai are distinct.
      */
     public void stressTest() {
-        // Generate a set of size n
-        // Create input array 'data'
-        // Compare naive and fast algorithms
-        Random random = new Random();
-        while (true) {
-            Set<Integer> setOfRdnInts = new HashSet<Integer>();
-            int n = random.nextInt(100000) + 1;
-            while (setOfRdnInts.size() < n) {
-                setOfRdnInts.add(random.nextInt(1000000000 + 1));
+        // Random arrays, some with repeats; every variant must give a heap,
+        // bounce must log the same swaps as sink, and replaying the log on
+        // the input must give the same array
+        System.out.println("Checking... (no more output means success)");
+        Random random = new Random(550);
+        for (int round = 0; round < 2000; round++) {
+            int n = random.nextInt(round < 100 ? 10 : 3000);
+            int bound = round % 2 == 0 ? 1000000000 : 5;
+            int[] input = new int[n];
+            for (int i = 0; i < n; i++) input[i] = random.nextInt(bound + 1);
+            for (int d : new int[]{2, 3, 4, 8}) {
+                for (boolean max : new boolean[]{false, true}) {
+                    int[] a = input.clone(), b = input.clone(), c = input.clone();
+                    SwapLog la = new SwapLog(), lb = new SwapLog();
+                    heapify(a, d, max, false, la);
+                    heapify(b, d, max, true, lb);
+                    la.applyTo(c);
+                    if (!isHeap(a, d, max) || !Arrays.equals(a, b) || !la.sameAs(lb) || !Arrays.equals(a, c))
+                        System.out.println("Error! n=" + n + " d=" + d + " max=" + max);
+                    if (la.size() > n) System.out.println("Too many swaps! n=" + n);
+                }
             }
-            this.data = new int[n];
-            long start = System.currentTimeMillis();
-            generateSwaps();
-            long end   = System.currentTimeMillis();
-            generateSwaps_naive();
-            if (! swaps.equals(swaps_naive)) {
-                System.out.println("Error! n=" + n);
+        }
+        // parallel = sequential, array and log, with chunks small enough to split
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int round = 0; round < 300; round++) {
+            int n = random.nextInt(round < 30 ? 3 : 5000);
+            int[] input = new int[n];
+            for (int i = 0; i < n; i++) input[i] = random.nextInt(round % 2 == 0 ? 1000000000 : 6);
+            for (int d : new int[]{2, 3, 5}) {
+                int[] a = input.clone(), b = input.clone();
+                SwapLog la = new SwapLog();
+                heapify(a, d, round % 3 == 0, false, la);
+                SwapLog lb = heapifyParallel(b, d, round % 3 == 0, true, pool, 1 + round % 7);
+                if (!Arrays.equals(a, b) || !la.sameAs(lb)) System.out.println("Parallel error! n=" + n + " d=" + d);
             }
-            else System.out.println("OK: n=" + n +
-                    "\t" + (end - start) + "ms");
         }
+        // the assignment's own answer is unchanged
+        data = new int[]{5, 4, 3, 2, 1};
+        generateSwaps();
+        if (swaps.size() != 3 || !Arrays.equals(swaps.pairs, 0, 6, new int[]{1, 4, 0, 1, 1, 3}, 0, 6))
+            System.out.println("Example error!");
     }
 
+    /** Best of 3 for sink, bounce and parallel heapify on n random ints. */
+    public void benchmark(int n) {
+        Random random = new Random(550);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int[] big = new int[n];
+        for (int i = 0; i < n; i++) big[i] = random.nextInt();
+        for (int d : new int[]{2, 4}) {
+            for (boolean bounce : new boolean[]{false, true}) {
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < 3; r++) {
+                    int[] a = big.clone();
+                    long start = System.nanoTime();
+                    heapify(a, d, false, bounce, null);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.printf("n=%d d=%d %s: %.1fms%n", n, d, bounce ? "bounce" : "sink  ", best / 1e6);
+            }
+            long best = Long.MAX_VALUE;
+            for (int r = 0; r < 3; r++) {
+                int[] a = big.clone();
+                long start = System.nanoTime();
+                heapifyParallel(a, d, false, false, pool);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("n=%d d=%d parallel(%d): %.1fms%n", n, d, pool.getParallelism(), best / 1e6);
+        }
+    }
+
+    /**
+     * Two passes instead of a swap list: count the swaps on a copy, print
+     * the count, then heapify again writing each swap straight out. Extra
+     * memory is one int[n], not one object (or pair) per swap.
+     */
     public void solve() throws IOException {
         in = new FastScanner();
-        out = new PrintWriter(new BufferedOutputStream(System.out));
         readData();
-        generateSwaps();
-        writeResponse();
-        out.close();
-    }
-
-    static class Swap {
-        int index1;
-        int index2;
-
-        public Swap(int index1, int index2) {
-            this.index1 = index1;
-            this.index2 = index2;
-        }
+        final int[] count = new int[1];
+        heapify(data.clone(), 2, false, true, (i, j) -> count[0]++);
+        SwapWriter out = new SwapWriter(System.out);
+        out.line(count[0]);
+        heapify(data, 2, false, true, out);
+        out.flush();
     }
 
     static class FastScanner {
@@ -0,0 +1,229 @@
+package priorityQueues_disjointSets;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel processing job queue, for real.
+ * <p>
+ * Runs Runnable jobs with estimated durations on numWorkers threads and
+ * compares what happened with ParallelJobQueue's simulation of the same
+ * estimates (startTime[] + duration, in units of unitNanos):</br>
+ * EARLIEST_FREE: the model itself; a thread that becomes free takes the
+ * next job of the list (one shared atomic index).</br>
+ * WORK_STEALING: each thread owns the jobs the simulation gave it, as a
+ * deque; it takes its own from the head, and once empty steals from the
+ * tail of another, so bad estimates do not leave threads idle.
+ * <p>
+ * Key Idea: a deque over a fixed slice of one shared array only shrinks,
+ * so its whole state is (head, tail) packed in one AtomicLong; owner and
+ * thieves claim a job with a single CAS on either end.
+ */
+public class JobExecutor {
+    public enum Policy { EARLIEST_FREE, WORK_STEALING }
+
+    private final int numWorkers;
+    private final long unitNanos;
+
+    public JobExecutor(int numWorkers, long unitNanos) {
+        if (numWorkers < 1) throw new IllegalArgumentException("numWorkers " + numWorkers);
+        if (unitNanos < 1) throw new IllegalArgumentException("unitNanos " + unitNanos);
+        this.numWorkers = numWorkers;
+        this.unitNanos = unitNanos;
+    }
+
+    /** Outcome of one run; times in nanoseconds from the common start. */
+    public static class Report {
+        Policy policy;
+        int[] worker;
+        long[] start, end;
+        long makespan, simulatedMakespan, steals;
+        // busy time / (workers * makespan)
+        double utilization;
+        // mean |actual end - simulated end|, in units
+        double meanError;
+        // share of jobs run by the worker the simulation predicted
+        double sameWorker;
+
+        @Override
+        public String toString() {
+            return String.format("%-13s makespan=%.2fms simulated=%.2fms utilization=%.3f"
+                            + " mean_error=%.1f same_worker=%.3f steals=%d",
+                    policy, makespan / 1e6, simulatedMakespan / 1e6, utilization,
+                    meanError, sameWorker, steals);
+        }
+    }
+
+    public Report run(final Runnable[] jobs, int[] estimates, Policy policy) throws InterruptedException {
+        final int n = jobs.length;
+        if (estimates.length != n) throw new IllegalArgumentException("one estimate per job");
+        ParallelJobQueue sim = ParallelJobQueue.simulate(numWorkers, estimates);
+        final int[] plan = sim.assignedWorker();
+        final Report r = new Report();
+        r.policy = policy;
+        r.worker = new int[n];
+        r.start = new long[n];
+        r.end = new long[n];
+
+        // WORK_STEALING: jobs of worker w are order[from[w] .. from[w+1]),
+        // in list order
+        final int[] order = new int[n];
+        final int[] from = new int[numWorkers + 1];
+        for (int w : plan) from[w + 1]++;
+        for (int w = 0; w < numWorkers; w++) from[w + 1] += from[w];
+        int[] fill = from.clone();
+        for (int i = 0; i < n; i++) order[fill[plan[i]]++] = i;
+        final AtomicLong[] deque = new AtomicLong[numWorkers];
+        for (int w = 0; w < numWorkers; w++) deque[w] = new AtomicLong((long) from[w] << 32 | from[w + 1]);
+
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicLong steals = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final long[] busy = new long[numWorkers];
+        final CountDownLatch ready = new CountDownLatch(numWorkers);
+        final CountDownLatch go = new CountDownLatch(1);
+        final long[] t0 = new long[1];
+        Thread[] threads = new Thread[numWorkers];
+        for (int w = 0; w < numWorkers; w++) {
+            final int id = w;
+            threads[w] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long begin = t0[0], mine = 0;
+                try {
+                    while (true) {
+                        int i;
+                        if (policy == Policy.EARLIEST_FREE) {
+                            i = next.getAndIncrement();
+                            if (i >= n) break;
+                        } else {
+                            i = takeHead(deque[id], order);
+                            if (i == -1) {
+                                i = steal(deque, id, order);
+                                if (i == -1) break;
+                                steals.incrementAndGet();
+                            }
+                        }
+                        long s = System.nanoTime();
+                        jobs[i].run();
+                        long e = System.nanoTime();
+                        r.worker[i] = id;
+                        r.start[i] = s - begin;
+                        r.end[i] = e - begin;
+                        mine += e - s;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+                busy[id] = mine;
+            }, "job-worker-" + w);
+            threads[w].start();
+        }
+        ready.await();
+        t0[0] = System.nanoTime();
+        go.countDown();
+        // BZ: join() is what makes the workers' plain array writes visible
+        for (Thread t : threads) t.join();
+        if (failure.get() != null) throw new IllegalStateException("job failed", failure.get());
+
+        long[] simStart = sim.startTime();
+        long totalBusy = 0, same = 0;
+        double error = 0;
+        for (long b : busy) totalBusy += b;
+        for (int i = 0; i < n; i++) {
+            r.makespan = Math.max(r.makespan, r.end[i]);
+            long simEnd = (simStart[i] + estimates[i]) * unitNanos;
+            r.simulatedMakespan = Math.max(r.simulatedMakespan, simEnd);
+            error += Math.abs(r.end[i] - simEnd) / (double) unitNanos;
+            if (r.worker[i] == plan[i]) same++;
+        }
+        r.steals = steals.get();
+        r.utilization = r.makespan == 0 ? 0 : (double) totalBusy / ((double) numWorkers * r.makespan);
+        r.meanError = n == 0 ? 0 : error / n;
+        r.sameWorker = n == 0 ? 1 : (double) same / n;
+        return r;
+    }
+
+    /** Owner end. @return job id, or -1 if empty */
+    private static int takeHead(AtomicLong d, int[] order) {
+        while (true) {
+            long s = d.get();
+            int h = (int) (s >>> 32), t = (int) s;
+            if (h >= t) return -1;
+            if (d.compareAndSet(s, (long) (h + 1) << 32 | t)) return order[h];
+        }
+    }
+
+    /** Thief end: last job of the first non-empty deque after self. */
+    private int steal(AtomicLong[] deque, int self, int[] order) {
+        for (int k = 1; k < numWorkers; k++) {
+            AtomicLong d = deque[(self + k) % numWorkers];
+            while (true) {
+                long s = d.get();
+                int h = (int) (s >>> 32), t = (int) s;
+                if (h >= t) break;
+                if (d.compareAndSet(s, (long) h << 32 | (t - 1))) return order[t - 1];
+            }
+        }
+        // nothing is ever added, so all empty means done
+        return -1;
+    }
+
+    /** Busy-wait, so a job really occupies its thread for that long. */
+    private static void spin(long nanos) {
+        long until = System.nanoTime() + nanos;
+        while (System.nanoTime() < until) { }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        System.out.println("Checking... (no more output means success)");
+        Random rand = new Random(550);
+        int[] estimates = new int[m];
+        long[] actual = new long[m];
+        for (int i = 0; i < m; i++) {
+            estimates[i] = 20 + rand.nextInt(200);  // microseconds
+            // real durations off by up to 2x either way
+            actual[i] = (long) (estimates[i] * 1000 * Math.pow(2, 2 * rand.nextDouble() - 1));
+        }
+        JobExecutor ex = new JobExecutor(workers, 1000);
+        StringBuilder out = new StringBuilder();
+        for (Policy policy : Policy.values()) {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(m);
+            Runnable[] jobs = new Runnable[m];
+            for (int i = 0; i < m; i++) {
+                final int id = i;
+                final long nanos = actual[i];
+                jobs[i] = () -> {
+                    runs.incrementAndGet(id);
+                    spin(nanos);
+                };
+            }
+            Report r = ex.run(jobs, estimates, policy);
+            for (int i = 0; i < m; i++)
+                if (runs.get(i) != 1) System.out.println(policy + ": job " + i + " ran " + runs.get(i) + " times!");
+            out.append(r).append('\n');
+        }
+        // no-op jobs on many threads: every job still runs exactly once
+        final AtomicIntegerArray runs = new AtomicIntegerArray(100000);
+        Runnable[] jobs = new Runnable[100000];
+        for (int i = 0; i < jobs.length; i++) {
+            final int id = i;
+            jobs[i] = () -> runs.incrementAndGet(id);
+        }
+        ex = new JobExecutor(8, 1000);
+        ex.run(jobs, new int[jobs.length], Policy.WORK_STEALING);
+        for (int i = 0; i < jobs.length; i++)
+            if (runs.get(i) != 1) System.out.println("Stealing: job " + i + " ran " + runs.get(i) + " times!");
+        System.out.print(out);
+    }
+}
@@ -1,13 +1,10 @@
 package priorityQueues_disjointSets;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.Locale;
-import java.util.StringTokenizer;
 
 /**
  * Merging tables
@@ -46,9 +43,37 @@ public class MergingTables {
         InputReader reader = new InputReader(System.in);
         OutputWriter writer = new OutputWriter(System.out);
         new MergingTables(reader, writer).run();
-        writer.writer.flush();
+        writer.flush();
     }
 
+    // The symbolic link to the destination root;
+    // initially pointing to itself
+    int[] parent;
+    // rank[i] bounds the height of the subtree whose root is i;
+    // union by rank keeps it <= log2(n), so a byte is enough
+    // BZ: link the lower rank to the larger to compress
+    byte[] rank;
+    // The count of rows in the table; long, since sums of
+    // many tables overflow int
+    long[] rows;
+
+    /**Find super parent, halving the path on the way.
+     * Point every other node along the path to its
+     * grandparent: one pass, no recursion, and the
+     * same amortized bound as full compression.
+     * BZ: the recursive Find(i) overflows the stack
+     *     if too deep; the two-pass loop walks twice
+     */
+    int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    long maximumNumberOfRows = -1;
+
     /**
      * Key Idea:
      * Maintain counts/ranks/parents for all tables.
@@ -59,128 +84,103 @@ public class MergingTables {
      * Increase the rank if both's ranks are same.
      * Accumulate r[rd] += r[rs], and only the rd.
      * clear rank of real source, update global max
+     * <p>
+     * Tables are indices into parallel arrays, not objects: 13 bytes a
+     * table instead of a Table object plus its reference.
      */
-    class Table {
-        // The symbolic link to the destination root;
-        // initially pointing to itself
-        Table parent;
-        // rank[i] is the height of the subtree whose root is i
-        // BZ: link the lower rank to the larger to compress
-        int rank;
-        // The count of rows in the table
-        int numberOfRows;
-
-        Table(int numberOfRows) {
-            this.numberOfRows = numberOfRows;
-            rank = 0;
-            parent = this;
-        }
-        /**Find super parent and compress path.
-         * Update parent of all nodes
-         * along the path till real root.
-         * Find(i):
-         *     if i!= parent[i]:
-         *         parent[i] = Find(parent[i])
-         *     return parent[i]
-         * BZ: use `if` instead of `while`...
-         * BZ: compress the whole path to the root,
-         *     not just the first edge of this path
-         * BZ: StackOverflow if too deep
-         */
-        /* Recursive implementation:
-         * Table getParent() {
-         *     if (this != parent)
-         *         parent = parent.getParent();
-         *     return parent;
-         * }
-         */
-        Table getParent() {
-            // Approach the super root
-            Table superRoot = this, i = this;
-            while (superRoot != superRoot.parent) {
-                superRoot = superRoot.parent;
-            }
-            while (i != superRoot) {
-                Table oldParent = i.parent;
-                i.parent = superRoot;
-                i = oldParent;
-            }
-            return superRoot;
-        }
-    }
-
-    int maximumNumberOfRows = -1;
-
-    void merge(Table destination, Table source) {
-        Table realDestination = destination.getParent();
-        // System.out.println("Find D OK");
-        Table realSource = source.getParent();
-        // System.out.println("Find S OK");
+    void merge(int destination, int source) {
+        int realDestination = find(destination);
+        int realSource = find(source);
         if (realDestination == realSource) {
             return;
         }
         // merge two components here
         // use rank heuristic
         // update maximumNumberOfRows
-        if (realSource.rank <= realDestination.rank) {
+        int root;
+        if (rank[realSource] <= rank[realDestination]) {
             // BZ: set source or realSource?
-            realSource.parent = realDestination;
-            realDestination.numberOfRows += realSource.numberOfRows;
-            realSource.numberOfRows = 0;
+            parent[realSource] = realDestination;
+            root = realDestination;
+            if (rank[realSource] == rank[realDestination])
+                rank[realDestination]++;  // since S is now under D
         }
         else {
-            realDestination.parent = realSource;
-            realSource.numberOfRows += realDestination.numberOfRows;
-            realDestination.numberOfRows = 0;
-        }
-        if (realSource.rank == realDestination.rank)
-            realDestination.rank++;  // since S is now under D
-        maximumNumberOfRows = Math.max(
-                Math.max(maximumNumberOfRows, realSource.numberOfRows),
-                realDestination.numberOfRows);
+            parent[realDestination] = realSource;
+            root = realSource;
+        }
+        rows[root] = rows[realDestination] + rows[realSource];
+        rows[root == realSource ? realDestination : realSource] = 0;
+        maximumNumberOfRows = Math.max(maximumNumberOfRows, rows[root]);
     }
 
     public void run() {
         int n = reader.nextInt();
         int m = reader.nextInt();
-        Table[] tables = new Table[n];
+        parent = new int[n];
+        rank = new byte[n];
+        rows = new long[n];
         for (int i = 0; i < n; i++) {
-            int numberOfRows = reader.nextInt();
-            tables[i] = new Table(numberOfRows);
+            parent[i] = i;
+            rows[i] = reader.nextInt();
             // Maintain the global max during initialization
-            maximumNumberOfRows = Math.max(maximumNumberOfRows, numberOfRows);
+            maximumNumberOfRows = Math.max(maximumNumberOfRows, rows[i]);
         }
         for (int i = 0; i < m; i++) {
             int destination = reader.nextInt() - 1;
             int source = reader.nextInt() - 1;
-            merge(tables[destination], tables[source]);
-            writer.printf("%d\n", maximumNumberOfRows);
+            merge(destination, source);
+            writer.println(maximumNumberOfRows);
         }
     }
 
 
+    /** Tokens straight from a byte buffer; no line Strings or tokenizer. */
     static class InputReader {
-        public BufferedReader reader;
-        public StringTokenizer tokenizer;
+        private final InputStream stream;
+        private final byte[] buf = new byte[1 << 16];
+        private int len, pos;
 
         public InputReader(InputStream stream) {
-            reader = new BufferedReader(new InputStreamReader(stream), 32768);
-            tokenizer = null;
+            this.stream = stream;
         }
 
-        public String next() {
-            while (tokenizer == null || !tokenizer.hasMoreTokens()) {
+        private int read() {
+            if (pos == len) {
+                // BZ: EOF is sticky; pos == len == -1 from then on, o.w.
+                // the next read() returns stale bytes of buf
+                if (len == -1) return -1;
                 try {
-                    tokenizer = new StringTokenizer(reader.readLine());
+                    len = stream.read(buf, 0, buf.length);
                 } catch (IOException e) {
-                    throw new RuntimeException(e);
+                    throw new UncheckedIOException(e);
+                }
+                pos = 0;
+                if (len <= 0) {
+                    pos = len = -1;
+                    return -1;
                 }
             }
-            return tokenizer.nextToken();
+            return buf[pos++];
+        }
+
+        private int skipBlanks() {
+            int c = read();
+            while (c != -1 && c <= ' ') c = read();
+            if (c == -1) throw new RuntimeException("unexpected end of input");
+            return c;
+        }
+
+        public String next() {
+            StringBuilder sb = new StringBuilder();
+            for (int c = skipBlanks(); c > ' '; c = read()) sb.append((char) c);
+            return sb.toString();
         }
 
         public int nextInt() {
-            return Integer.parseInt(next());
+            long x = nextLong();
+            if (x != (int) x) throw new NumberFormatException(x + " is not an int");
+            return (int) x;
         }
 
         public double nextDouble() {
@@ -188,19 +188,82 @@ public class MergingTables {
         }
 
         public long nextLong() {
-            return Long.parseLong(next());
+            int c = skipBlanks();
+            boolean neg = c == '-';
+            if (neg) c = read();
+            long x = 0;
+            for (; c > ' '; c = read()) {
+                if (c < '0' || c > '9') throw new NumberFormatException("unexpected '" + (char) c + "'");
+                x = x * 10 + c - '0';
+            }
+            return neg ? -x : x;
         }
     }
 
+    /** Buffered output; println(long) formats digits into the buffer. */
     static class OutputWriter {
-        public PrintWriter writer;
+        private final OutputStream stream;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
 
         OutputWriter(OutputStream stream) {
-            writer = new PrintWriter(stream);
+            this.stream = stream;
+        }
+
+        public void println(long x) {
+            // room for "-9223372036854775808\n"
+            if (pos + 21 > buf.length) flushBuffer();
+            if (x < 0) {
+                // BZ: -Long.MIN_VALUE overflows
+                if (x == Long.MIN_VALUE) {
+                    printf("%d\n", x);
+                    return;
+                }
+                buf[pos++] = '-';
+                x = -x;
+            }
+            int start = pos;
+            do {
+                buf[pos++] = (byte) ('0' + x % 10);
+                x /= 10;
+            } while (x > 0);
+            // digits went in backwards
+            for (int i = start, j = pos - 1; i < j; i++, j--) {
+                byte tmp = buf[i]; buf[i] = buf[j]; buf[j] = tmp;
+            }
+            buf[pos++] = '\n';
         }
 
         public void printf(String format, Object... args) {
-            writer.print(String.format(Locale.ENGLISH, format, args));
+            byte[] bytes = String.format(Locale.ENGLISH, format, args).getBytes();
+            if (pos + bytes.length > buf.length) flushBuffer();
+            if (bytes.length > buf.length) write(bytes, bytes.length);
+            else {
+                System.arraycopy(bytes, 0, buf, pos, bytes.length);
+                pos += bytes.length;
+            }
+        }
+
+        private void write(byte[] b, int n) {
+            try {
+                stream.write(b, 0, n);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void flushBuffer() {
+            write(buf, pos);
+            pos = 0;
+        }
+
+        public void flush() {
+            flushBuffer();
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
 }
@@ -6,8 +6,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.PriorityQueue;
 import java.util.Random;
 import java.util.StringTokenizer;
 
@@ -40,13 +38,49 @@ public class ParallelJobQueue {
     private int[] assignedWorker_naive;
     // The start_time of each job
     private long[] startTime, startTime_naive;
+    // Stress test only: take assignJobs_wide() whatever the bound says
+    boolean forceWide;
+    // Whether the last assignJobs() ran assignJobs_wide()
+    private boolean usedWide;
 
     private FastScanner in;
     private PrintWriter out;
 
+    /**
+     * usage: java priorityQueues_disjointSets.ParallelJobQueue [solve | seed [rounds [maxJobs]]]
+     * solve: read one case from stdin; else run the stress test and exit
+     * with 0 if all rounds matched the naive algorithm, 1 otherwise.
+     */
     public static void main(String[] args) throws IOException {
-        // new JobQueue().solve();
-        new ParallelJobQueue().stressTest();
+        if (args.length > 0 && args[0].equals("solve")) {
+            new ParallelJobQueue().solve();
+            return;
+        }
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 550;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxJobs = args.length > 2 ? Integer.parseInt(args[2]) : 10000000;
+        int failures = new ParallelJobQueue().stressTest(seed, rounds, maxJobs);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Run the fast assignment on given input, for callers in this package.
+     * @return the queue, with assignedWorker() and startTime() filled in
+     */
+    static ParallelJobQueue simulate(int numWorkers, int[] jobs) {
+        ParallelJobQueue q = new ParallelJobQueue();
+        q.numWorkers = numWorkers;
+        q.jobs = jobs;
+        q.assignJobs();
+        return q;
+    }
+
+    int[] assignedWorker() {
+        return assignedWorker;
+    }
+
+    long[] startTime() {
+        return startTime;
     }
 
     private void readData() throws IOException {
@@ -93,68 +127,164 @@ public class ParallelJobQueue {
      * Pop out the first available thread.
      * Record assigned worker and start_time for job i.
      * Update the thread's next free time and push back
+     * <p>
+     * The queue is a primitive min-heap of longs (nextFreeTime << idBits | id),
+     * so one long comparison orders by time, then id. Updating the top is a
+     * single sift-down (replace-top), never poll + offer.
+     * BZ: the old comparator returned (int) (t1 - t2), which overflows once
+     * times differ by more than 2^31; packed keys compare exactly as long as
+     * every time fits in 63 - idBits bits, else assignJobs_wide() is used.
      */
     private void assignJobs() {
         assignedWorker = new int[jobs.length];
         startTime = new long[jobs.length];
-        // Build a PQ of m Workers sorted by free time
-        PriorityQueue<Worker> pq = new PriorityQueue<Worker>(numWorkers,
-                new Comparator<Worker>(){
-            @Override
-            public int compare (Worker w1, Worker w2) {
-                return w1.nextFreeTime == w2.nextFreeTime ? w1.id - w2.id :
-                    (int) (w1.nextFreeTime - w2.nextFreeTime);
-            }
-        });
-        // Push all new threads with initial free time 0
-        for (int i = 0; i < numWorkers; i++)
-            pq.offer(new Worker(i));
-        // Process each job by the 1st free thread
+        int idBits = 32 - Integer.numberOfLeadingZeros(Math.max(numWorkers - 1, 1));
+        // A job starts at the least free time, at most the mean total / n,
+        // so no free time ever exceeds total / n + the longest job
+        long total = 0, longest = 0;
+        for (int d : jobs) {
+            total += d;
+            longest = Math.max(longest, d);
+        }
+        usedWide = forceWide || total / numWorkers + longest >= 1L << (63 - idBits);
+        if (usedWide) {
+            assignJobs_wide();
+            return;
+        }
+        long idMask = (1L << idBits) - 1;
+        // ids in order with free time 0 already form a heap
+        long[] heap = new long[numWorkers];
+        for (int i = 0; i < numWorkers; i++) heap[i] = i;
         for (int i = 0; i < jobs.length; i++) {
-            Worker freeThread = pq.poll();
+            long top = heap[0];
+            int id = (int) (top & idMask);
+            long free = top >>> idBits;
             // Record job i's assigned worker and start_time
-            assignedWorker[i] = freeThread.id;
-            startTime[i] = freeThread.nextFreeTime;
-            // Update next free time and offer back
-            freeThread.nextFreeTime += jobs[i];
-            pq.offer(freeThread);
-            // This thread will be sorted again according to
-            // its next free time, by next job to be processed
+            assignedWorker[i] = id;
+            startTime[i] = free;
+            siftDown(heap, numWorkers, (free + jobs[i]) << idBits | id);
+        }
+    }
+
+    /**
+     * Put key at the root and sift it down; heap[0] is overwritten.
+     * 4-ary (children of i at 4i+1..4i+4, one cache line): half the levels
+     * of a binary heap. Bottom-up: the new free time usually belongs near
+     * the leaves, so walk the hole down the smallest children to a leaf,
+     * then move key up from there.
+     */
+    private static void siftDown(long[] heap, int n, long key) {
+        int i = 0, c;
+        while ((c = 4 * i + 1) < n) {
+            int end = Math.min(c + 4, n);
+            int min = c;
+            for (int k = c + 1; k < end; k++)
+                if (heap[k] < heap[min]) min = k;
+            heap[i] = heap[min];
+            i = min;
+        }
+        while (i > 0 && heap[(i - 1) >> 2] > key) {
+            heap[i] = heap[(i - 1) >> 2];
+            i = (i - 1) >> 2;
         }
+        heap[i] = key;
     }
-    private static class Worker {
-        int id;
-        long nextFreeTime;
-        public Worker (int id) {
-            this.id = id;
-            nextFreeTime = 0;
+
+    /** Same order as assignJobs(); binary heap of time and id in parallel arrays. */
+    private void assignJobs_wide() {
+        long[] time = new long[numWorkers];
+        int[] id = new int[numWorkers];
+        for (int i = 0; i < numWorkers; i++) id[i] = i;
+        int n = numWorkers;
+        for (int i = 0; i < jobs.length; i++) {
+            assignedWorker[i] = id[0];
+            startTime[i] = time[0];
+            long t = time[0] + jobs[i];
+            int w = id[0];
+            int j = 0;
+            while (true) {
+                int c = 2 * j + 1;
+                if (c >= n) break;
+                if (c + 1 < n && (time[c + 1] < time[c] || time[c + 1] == time[c] && id[c + 1] < id[c])) c++;
+                if (time[c] > t || time[c] == t && id[c] > w) break;
+                time[j] = time[c];
+                id[j] = id[c];
+                j = c;
+            }
+            time[j] = t;
+            id[j] = w;
         }
     }
-    public void stressTest() {
-        // Generate random m threads and array of n jobs
-        // Compare naive and fast algorithms
-        Random random = new Random();
-        int bound = 100000, job_bound = 1000000000;
-        while (true) {
-            this.numWorkers = random.nextInt(bound) + 1;
-            int m = random.nextInt(bound) + 1;
+
+    /**
+     * Bounded, reproducible stress test.
+     * 1. rounds random cases, small enough for the O(n*m) naive algorithm,
+     *    compared exactly (workers and start times); odd rounds force
+     *    assignJobs_wide(), which no case this small needs on its own;
+     * 2. jobs/sec of the fast algorithm per workload shape, after warmup,
+     *    labelled with the path that ran (packed or wide).
+     * Prints tab separated rows; the same seed gives the same cases.
+     *
+     * @return number of mismatching rounds
+     */
+    public int stressTest(long seed, int rounds, int maxJobs) {
+        Random random = new Random(seed);
+        int failures = 0;
+        for (int r = 0; r < rounds; r++) {
+            // BZ: keep n * m bounded, naive is O(n*m)
+            this.numWorkers = random.nextInt(2000) + 1;
+            int m = random.nextInt(2000) + 1;
+            // mix in ties: all-equal and tiny durations, besides the full range
+            int shape = r % 3, job_bound = shape == 0 ? 1000000000 : shape == 1 ? 3 : 0;
+            int equal = random.nextInt(1000);
             jobs = new int[m];
             for (int i = 0; i < m; i++) {
-                jobs[i] = random.nextInt(job_bound + 1);
+                jobs[i] = job_bound == 0 ? equal : random.nextInt(job_bound + 1);
             }
             // Fast and naive algorithms share the same
             // jobs and numWorkers, but different output
-            long start = System.currentTimeMillis();
+            forceWide = r % 2 == 1;
             assignJobs();
-            long end   = System.currentTimeMillis();
             assignJobs_naive();
-            if (Arrays.equals(assignedWorker, assignedWorker_naive)
-                    && Arrays.equals(startTime, startTime_naive)) {
-                System.out.println("OK: n=" + numWorkers + "\t"
-                    + (end - start) + "ms");
+            if (!Arrays.equals(assignedWorker, assignedWorker_naive)
+                    || !Arrays.equals(startTime, startTime_naive)) {
+                failures++;
+                System.out.println("MISMATCH\tseed=" + seed + "\tround=" + r
+                        + "\tn=" + numWorkers + "\tm=" + m + "\tpath=" + (usedWide ? "wide" : "packed"));
             }
-            else System.out.println("Error: n=" + numWorkers);
         }
+        forceWide = false;
+        System.out.println("correctness\t" + (failures == 0 ? "PASS" : "FAIL")
+                + "\trounds=" + rounds + "\tfailures=" + failures);
+
+        System.out.println("shape\tworkers\tjobs\tpath\tbest_ms\tjobs_per_sec");
+        int m = maxJobs;
+        throughput("many_workers_few_jobs", 100000, Math.max(1, m / 1000), 1000000000, random);
+        throughput("few_workers_many_jobs", 4, m, 1000000000, random);
+        throughput("many_workers_many_jobs", 100000, m, 1000000000, random);
+        throughput("equal_durations", 1000, m, -1, random);
+        // the fallback on the same shape, for comparison
+        forceWide = true;
+        throughput("many_workers_many_jobs", 100000, m, 1000000000, random);
+        forceWide = false;
+        return failures;
+    }
+
+    /** @param bound durations in [0, bound]; -1 means all equal */
+    private void throughput(String shape, int n, int m, int bound, Random random) {
+        numWorkers = n;
+        jobs = new int[m];
+        for (int i = 0; i < m; i++) jobs[i] = bound == -1 ? 1000 : random.nextInt(bound + 1);
+        final int WARMUP = 2, RUNS = 3;
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < WARMUP + RUNS; r++) {
+            long start = System.nanoTime();
+            assignJobs();
+            long t = System.nanoTime() - start;
+            if (r >= WARMUP) best = Math.min(best, t);
+        }
+        System.out.printf("%s\t%d\t%d\t%s\t%.1f\t%.0f%n", shape, n, m, usedWide ? "wide" : "packed",
+                best / 1e6, m / (best / 1e9));
     }
 
     public void solve() throws IOException {